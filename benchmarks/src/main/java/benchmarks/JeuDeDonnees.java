@@ -0,0 +1,83 @@
+package benchmarks;
+
+import entity.Carte;
+import entity.CarteCredit;
+import entity.CarteDebit;
+import entity.CartePrepayee;
+import entity.OperationCarte;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded synthetic data shared by the benchmarks, so every run measures the same inputs.
+ * Operations come in date order, one card per 100 operations on average; each card has a
+ * home city and 10% of its operations happen elsewhere. Amounts are in cents, mostly small.
+ */
+public final class JeuDeDonnees {
+    public static final long GRAINE = 42L;
+
+    private static final String[] TYPES = {"ACHAT", "RETRAIT", "PAIEMENTENLIGNE"};
+    private static final String[] LIEUX = {"Paris", "Lyon", "Marseille", "Lille", "Toulouse", "Nantes", "Rabat", "Casablanca"};
+    private static final String[] STATUTS = {"ACTIVE", "ACTIVE", "ACTIVE", "ACTIVE", "ACTIVE", "ACTIVE", "ACTIVE",
+            "ACTIVE", "SUSPENDUE", "BLOQUEE"};
+    private static final long DEBUT = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0)).getTime();
+
+    private JeuDeDonnees() {
+    }
+
+    public static int nombreCartes(int operations) {
+        return Math.max(100, operations / 100);
+    }
+
+    public static List<OperationCarte> operations(int nombre) {
+        Random random = new Random(GRAINE);
+        int cartes = nombreCartes(nombre);
+        List<OperationCarte> operations = new ArrayList<>(nombre);
+
+        long instant = DEBUT;
+        for (int i = 0; i < nombre; i++) {
+            instant += random.nextInt(400);
+            int carte = 1 + random.nextInt(cartes);
+            String lieu = random.nextInt(10) == 0 ? LIEUX[random.nextInt(LIEUX.length)] : LIEUX[carte % LIEUX.length];
+            operations.add(new OperationCarte(i + 1, new Timestamp(instant), montant(random),
+                    TYPES[random.nextInt(TYPES.length)], lieu, carte));
+        }
+        return operations;
+    }
+
+    public static List<Carte> cartes(int nombre) {
+        Random random = new Random(GRAINE);
+        Date expiration = Date.valueOf(LocalDate.of(2030, 1, 1));
+        List<Carte> cartes = new ArrayList<>(nombre);
+
+        for (int i = 1; i <= nombre; i++) {
+            String numero = String.format("4532%012d", i);
+            String statut = STATUTS[random.nextInt(STATUTS.length)];
+            cartes.add(switch (random.nextInt(3)) {
+                case 0 -> new CarteDebit(i, numero, expiration, statut, i % 1000, BigDecimal.valueOf(1000));
+                case 1 -> new CarteCredit(i, numero, expiration, statut, i % 1000, BigDecimal.valueOf(5000), BigDecimal.valueOf(15));
+                default -> new CartePrepayee(i, numero, expiration, statut, i % 1000, BigDecimal.valueOf(250));
+            });
+        }
+        return cartes;
+    }
+
+    // 80% between 1 and 100€, 18% up to 1000€, 2% up to 5000€
+    private static long montant(Random random) {
+        int tirage = random.nextInt(100);
+        if (tirage < 80) {
+            return 100 + random.nextInt(9_900);
+        }
+        if (tirage < 98) {
+            return 10_000 + random.nextInt(90_000);
+        }
+        return 100_000 + random.nextInt(400_000);
+    }
+}
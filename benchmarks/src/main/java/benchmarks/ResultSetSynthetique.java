@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory ResultSet over a fixed set of rows (column name -> value), cycling forever, so the
+ * DAO mapping code can be measured without a database. Only the getters used by the DAO
+ * mappers are supported. The proxy dispatch is part of every measurement; it is the same for
+ * every version of the mapping code, so results remain comparable.
+ */
+public final class ResultSetSynthetique {
+
+    private ResultSetSynthetique() {
+    }
+
+    public static ResultSet cyclique(List<Map<String, Object>> lignes) {
+        int[] courante = {-1};
+        Object[] derniere = {null};
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                (proxy, methode, args) -> switch (methode.getName()) {
+                    case "next" -> {
+                        courante[0] = (courante[0] + 1) % lignes.size();
+                        yield true;
+                    }
+                    case "wasNull" -> derniere[0] == null;
+                    case "getString", "getDate", "getTimestamp", "getBigDecimal", "getObject" -> {
+                        derniere[0] = lignes.get(courante[0]).get((String) args[0]);
+                        yield derniere[0];
+                    }
+                    case "getInt" -> {
+                        derniere[0] = lignes.get(courante[0]).get((String) args[0]);
+                        yield derniere[0] == null ? 0 : ((Number) derniere[0]).intValue();
+                    }
+                    case "getLong" -> {
+                        derniere[0] = lignes.get(courante[0]).get((String) args[0]);
+                        yield derniere[0] == null ? 0L : ((Number) derniere[0]).longValue();
+                    }
+                    case "close" -> null;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "ResultSetSynthetique";
+                    default -> throw new UnsupportedOperationException(methode.getName());
+                });
+    }
+}
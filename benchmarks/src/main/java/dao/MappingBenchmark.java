@@ -0,0 +1,100 @@
+package dao;
+
+import benchmarks.JeuDeDonnees;
+import benchmarks.ResultSetSynthetique;
+import entity.Carte;
+import entity.CarteCredit;
+import entity.CarteDebit;
+import entity.CartePrepayee;
+import entity.OperationCarte;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.Montants;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning result rows into entities (CarteDAO.mapResultSetToCarte and
+ * OperationDAO.mapResultSetToOperation). Each invocation maps lignes rows, cycling over 1024
+ * synthetic rows, so memory use does not grow with the parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MappingBenchmark {
+    private static final int LIGNES_DISTINCTES = 1024;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int lignes;
+
+    private final CarteDAO carteDAO = new CarteDAO();
+    private final OperationDAO operationDAO = new OperationDAO();
+    private ResultSet cartes;
+    private ResultSet operations;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        cartes = ResultSetSynthetique.cyclique(JeuDeDonnees.cartes(LIGNES_DISTINCTES).stream()
+                .map(MappingBenchmark::ligneCarte)
+                .toList());
+        operations = ResultSetSynthetique.cyclique(JeuDeDonnees.operations(LIGNES_DISTINCTES).stream()
+                .map(MappingBenchmark::ligneOperation)
+                .toList());
+    }
+
+    @Benchmark
+    public void mapperCartes(Blackhole trou) throws SQLException {
+        for (int i = 0; i < lignes; i++) {
+            cartes.next();
+            trou.consume(carteDAO.mapResultSetToCarte(cartes));
+        }
+    }
+
+    @Benchmark
+    public void mapperOperations(Blackhole trou) throws SQLException {
+        for (int i = 0; i < lignes; i++) {
+            operations.next();
+            trou.consume(operationDAO.mapResultSetToOperation(operations));
+        }
+    }
+
+    private static Map<String, Object> ligneCarte(Carte carte) {
+        Map<String, Object> ligne = new HashMap<>();
+        ligne.put("id", carte.getId());
+        ligne.put("numero", carte.getNumero());
+        ligne.put("dateexpiration", carte.getDateExpiration());
+        ligne.put("statut", carte.getStatus());
+        ligne.put("typecarte", carte.getClass().getSimpleName());
+        ligne.put("idclient", carte.getClientId());
+        switch (carte) {
+            case CarteDebit debit -> ligne.put("plafondjournalier", debit.getPlafondJournalier());
+            case CarteCredit credit -> {
+                ligne.put("plafondmensuel", credit.getPlafondMensuel());
+                ligne.put("tauxinteret", credit.getTauxInteret());
+            }
+            case CartePrepayee prepayee -> ligne.put("soldedisponible", prepayee.getSoldeDisponible());
+            default -> {
+            }
+        }
+        return ligne;
+    }
+
+    private static Map<String, Object> ligneOperation(OperationCarte operation) {
+        Map<String, Object> ligne = new HashMap<>();
+        ligne.put("id", operation.id());
+        ligne.put("date", operation.date());
+        ligne.put("montant", Montants.enDecimal(operation.montant()));
+        ligne.put("type", operation.type());
+        ligne.put("lieu", operation.lieu());
+        ligne.put("idcarte", operation.idCarte());
+        return ligne;
+    }
+}
@@ -0,0 +1,55 @@
+package service;
+
+import benchmarks.JeuDeDonnees;
+import entity.AlerteFraude;
+import entity.OperationCarte;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fraud rules over a stream of operations, as run by MoteurFraude.evaluer for live operations
+ * and by FraudeService.analyserToutesLesCartes for the nightly scan (which replaced the old
+ * per-card FraudeService.detecterOperationsRapides). Each invocation replays the whole dataset
+ * through fresh sliding-window states, one per card.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class FraudeBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int operations;
+
+    private List<OperationCarte> donnees;
+    private int cartes;
+    private final MoteurFraude moteur = MoteurFraude.getInstance();
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        donnees = JeuDeDonnees.operations(operations);
+        cartes = JeuDeDonnees.nombreCartes(operations);
+    }
+
+    @Benchmark
+    public long appliquerRegles(Blackhole trou) {
+        EtatFraudeCarte[] etats = new EtatFraudeCarte[cartes + 1];
+        long alertes = 0;
+        for (OperationCarte operation : donnees) {
+            EtatFraudeCarte etat = etats[operation.idCarte()];
+            if (etat == null) {
+                etat = moteur.nouvelEtat();
+                etats[operation.idCarte()] = etat;
+            }
+            List<AlerteFraude> resultat = moteur.appliquerRegles(etat, operation);
+            alertes += resultat.size();
+            trou.consume(resultat);
+        }
+        return alertes;
+    }
+}
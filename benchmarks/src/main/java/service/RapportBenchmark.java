@@ -0,0 +1,62 @@
+package service;
+
+import benchmarks.JeuDeDonnees;
+import entity.Carte;
+import entity.OperationCarte;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Report aggregations. compterParStatut/compterParType are the RapportService stream pipelines
+ * over cards (one card per 100 operations). The operation totals are computed by PostgreSQL in
+ * production; the in-memory variants here compare the cost of the cents representation with
+ * the BigDecimal one it replaced, for callers aggregating operations they already hold.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class RapportBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int operations;
+
+    private List<OperationCarte> donnees;
+    private List<Carte> cartes;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        donnees = JeuDeDonnees.operations(operations);
+        cartes = JeuDeDonnees.cartes(JeuDeDonnees.nombreCartes(operations));
+    }
+
+    @Benchmark
+    public Map<String, Long> cartesParStatut() {
+        return RapportService.compterParStatut(cartes);
+    }
+
+    @Benchmark
+    public Map<String, Long> cartesParType() {
+        return RapportService.compterParType(cartes);
+    }
+
+    @Benchmark
+    public Map<String, Long> montantParTypeCentimes() {
+        return donnees.stream()
+                .collect(Collectors.groupingBy(OperationCarte::type, Collectors.summingLong(OperationCarte::montant)));
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> montantParTypeDecimal() {
+        return donnees.stream()
+                .collect(Collectors.groupingBy(OperationCarte::type, Collectors.reducing(BigDecimal.ZERO,
+                        operation -> BigDecimal.valueOf(operation.montant(), 2), BigDecimal::add)));
+    }
+}
@@ -1,15 +1,62 @@
 import util.DBUtil;
+import util.MigrationRunner;
 import service.ClientService;
 import entity.Client;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import ui.MainMenu;
+import service.FraudeService;
+import service.ImportService;
+import service.PublicateurAlertes;
+import service.PartitionService;
+import java.nio.file.Path;
 
 public class Main {
     public static void main(String[] args) {
+        // Bring the schema up to date before anything touches the database
+        try {
+            new MigrationRunner().migrate();
+            new PartitionService().maintenir();
+        } catch (SQLException e) {
+            System.out.println("Erreur lors de la migration du schéma: " + e.getMessage());
+            arreter();
+            return;
+        }
+
+        // Batch mode: java Main import operations.csv
+        if (args.length == 2 && "import".equals(args[0])) {
+            try {
+                new ImportService().importerOperationsCsv(Path.of(args[1]));
+            } catch (Exception e) {
+                System.out.println("Erreur lors de l'import: " + e.getMessage());
+            } finally {
+                arreter();
+            }
+            return;
+        }
+
+        // Batch mode for the nightly scan: java Main analyse-fraude
+        if (args.length == 1 && "analyse-fraude".equals(args[0])) {
+            try {
+                new FraudeService().analyserToutesLesCartes();
+            } catch (Exception e) {
+                System.out.println("Erreur lors de l'analyse de fraude: " + e.getMessage());
+            } finally {
+                arreter();
+            }
+            return;
+        }
+
         MainMenu menu = new MainMenu();
         menu.start();
+        arreter();
+    }
+
+    // Pending alerts are written before the connection pool closes
+    private static void arreter() {
+        PublicateurAlertes.getInstance().arreter();
+        DBUtil.shutdown();
     }
 }
 
@@ -5,25 +5,85 @@ import util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
 public class AlerteDAO implements BaseDAO<AlerteFraude, Integer> {
 
+    private static final String COLUMNS = "description, niveau, idcarte, regle, cle, occurrences, dernieredetection, idoperation";
+
+    // A repeated hit (same card, rule and key) updates the existing row. The update only applies to
+    // hits newer than the last one recorded, so replaying the same operations changes nothing.
+    private static final String ON_CONFLICT_SQL = """
+             ON CONFLICT (idcarte, regle, cle) DO UPDATE SET
+                description = EXCLUDED.description,
+                occurrences = alertefraude.occurrences + EXCLUDED.occurrences,
+                dernieredetection = EXCLUDED.dernieredetection,
+                idoperation = EXCLUDED.idoperation
+            WHERE (EXCLUDED.dernieredetection, COALESCE(EXCLUDED.idoperation, 0))
+                > (alertefraude.dernieredetection, COALESCE(alertefraude.idoperation, 0))
+            """;
+
     @Override
     public void save(AlerteFraude alerte) throws SQLException {
-        String sql = "INSERT INTO alertefraude (description, niveau, idcarte) VALUES (?, ?, ?)";
+        upsertAll(List.of(alerte));
+    }
 
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    // Plain insert, one id per alert in the given order (BaseDAO contract). An alert already
+    // recorded (same card, rule and key) makes the batch fail: use upsertAll to coalesce repeats.
+    @Override
+    public List<Integer> saveAll(Collection<AlerteFraude> alertes) throws SQLException {
+        return BatchInsert.insert("alertefraude", COLUMNS, 8, alertes, AlerteDAO::bindAlerte);
+    }
 
-            stmt.setString(1, alerte.description());
-            stmt.setString(2, alerte.niveau());
-            stmt.setInt(3, alerte.idCarte());
+    /**
+     * Inserts new alerts and coalesces repeated ones into their existing row.
+     * Returns the rows actually inserted or updated, with their current occurrence count;
+     * alerts that were already recorded (e.g. an analysis run twice) are not returned.
+     */
+    public List<AlerteFraude> upsertAll(Collection<AlerteFraude> alertes) throws SQLException {
+        return BatchInsert.insert("alertefraude", COLUMNS, 8, fusionnerDoublons(alertes),
+                AlerteDAO::bindAlerte, ON_CONFLICT_SQL, this::mapResultSetToAlerte);
+    }
 
-            stmt.executeUpdate();
+    private static void bindAlerte(PreparedStatement stmt, int offset, AlerteFraude alerte) throws SQLException {
+        stmt.setString(offset + 1, alerte.description());
+        stmt.setString(offset + 2, alerte.niveau());
+        stmt.setInt(offset + 3, alerte.idCarte());
+        stmt.setString(offset + 4, alerte.regle());
+        stmt.setString(offset + 5, alerte.cle());
+        stmt.setInt(offset + 6, alerte.occurrences());
+        stmt.setTimestamp(offset + 7, alerte.derniereDetection() != null
+                ? alerte.derniereDetection() : new Timestamp(System.currentTimeMillis()));
+        if (alerte.idOperation() > 0) {
+            stmt.setInt(offset + 8, alerte.idOperation());
+        } else {
+            stmt.setNull(offset + 8, Types.INTEGER);
+        }
+    }
+
+    // PostgreSQL rejects a statement that updates the same row twice, so hits sharing a key
+    // are merged here first; alerts without a rule are kept as they are
+    private List<AlerteFraude> fusionnerDoublons(Collection<AlerteFraude> alertes) {
+        Map<String, AlerteFraude> parCle = new LinkedHashMap<>();
+        List<AlerteFraude> resultat = new ArrayList<>(alertes.size());
+
+        for (AlerteFraude alerte : alertes) {
+            if (alerte.regle() == null || alerte.cle() == null) {
+                resultat.add(alerte);
+                continue;
+            }
+            parCle.merge(alerte.idCarte() + "|" + alerte.regle() + "|" + alerte.cle(), alerte, (premiere, suivante) ->
+                    new AlerteFraude(0, suivante.description(), suivante.niveau(), suivante.idCarte(),
+                            suivante.regle(), suivante.cle(), premiere.occurrences() + suivante.occurrences(),
+                            suivante.derniereDetection(), suivante.idOperation()));
         }
+        resultat.addAll(parCle.values());
+        return resultat;
     }
 
     @Override
@@ -50,8 +110,8 @@ public class AlerteDAO implements BaseDAO<AlerteFraude, Integer> {
         List<AlerteFraude> alertes = new ArrayList<>();
 
         try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 alertes.add(mapResultSetToAlerte(rs));
@@ -121,7 +181,12 @@ public class AlerteDAO implements BaseDAO<AlerteFraude, Integer> {
                 rs.getInt("id"),
                 rs.getString("description"),
                 rs.getString("niveau"),
-                rs.getInt("idcarte")
+                rs.getInt("idcarte"),
+                rs.getString("regle"),
+                rs.getString("cle"),
+                rs.getInt("occurrences"),
+                rs.getTimestamp("dernieredetection"),
+                rs.getInt("idoperation")
         );
     }
 }
@@ -1,6 +1,7 @@
 package dao;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,10 @@ public interface BaseDAO<T, ID> {
     void save(T entity) throws SQLException;
 
 
+    // Bulk insert; returns the generated ids in the order of the given entities
+    List<ID> saveAll(Collection<T> entities) throws SQLException;
+
+
     Optional<T> findById(ID id) throws SQLException;
 
 
@@ -0,0 +1,160 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk INSERT helper shared by the DAO saveAll implementations.
+ * Rows are sent as multi-row INSERT statements (ROWS_PER_STATEMENT rows each),
+ * several statements are grouped in one JDBC batch, and a commit is issued every
+ * ROWS_PER_COMMIT rows. If a chunk fails, the chunks committed before it stay in
+ * the database and the BulkInsertException reports how many entities they hold.
+ */
+final class BatchInsert {
+    static final int ROWS_PER_STATEMENT = 500;
+    static final int ROWS_PER_COMMIT = 5000;
+
+    @FunctionalInterface
+    interface RowBinder<T> {
+        // Binds one entity starting at parameter index offset + 1
+        void bind(PreparedStatement stmt, int offset, T entity) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface ChunkListener<T> {
+        // Runs on the insert's connection after a chunk is inserted and before it is committed,
+        // so that derived rows are written in the same transaction as the chunk
+        void beforeCommit(Connection conn, List<T> chunk) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface KeyReader<R> {
+        // Reads one returned row (pgjdbc returns every column of the inserted row)
+        R read(ResultSet keys) throws SQLException;
+    }
+
+    private BatchInsert() {
+    }
+
+    static <T> List<Integer> insert(String table, String columns, int columnCount,
+                                    Collection<T> entities, RowBinder<T> binder) throws SQLException {
+        return insert(table, columns, columnCount, entities, binder, "", keys -> keys.getInt("id"), null);
+    }
+
+    static <T> List<Integer> insert(String table, String columns, int columnCount, Collection<T> entities,
+                                    RowBinder<T> binder, ChunkListener<T> listener) throws SQLException {
+        return insert(table, columns, columnCount, entities, binder, "", keys -> keys.getInt("id"), listener);
+    }
+
+    static <T, R> List<R> insert(String table, String columns, int columnCount, Collection<T> entities,
+                                 RowBinder<T> binder, String suffix, KeyReader<R> reader) throws SQLException {
+        return insert(table, columns, columnCount, entities, binder, suffix, reader, null);
+    }
+
+    /**
+     * Variant with an SQL suffix appended to every statement (e.g. an ON CONFLICT clause).
+     * Rows skipped by the suffix return nothing, so the result can be shorter than entities.
+     */
+    private static <T, R> List<R> insert(String table, String columns, int columnCount, Collection<T> entities,
+                                         RowBinder<T> binder, String suffix, KeyReader<R> reader,
+                                         ChunkListener<T> listener) throws SQLException {
+        List<R> ids = new ArrayList<>(entities.size());
+        if (entities.isEmpty()) {
+            return ids;
+        }
+
+        String fullSql = buildSql(table, columns, columnCount, ROWS_PER_STATEMENT) + suffix;
+
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            Iterator<T> iterator = entities.iterator();
+            int remaining = entities.size();
+            // Entities of the chunks committed so far (ids may also hold rows of the failing chunk)
+            int committed = 0;
+            List<T> chunk = new ArrayList<>(listener != null ? ROWS_PER_COMMIT : 0);
+
+            try {
+                while (remaining > 0) {
+                    int chunkRows = Math.min(remaining, ROWS_PER_COMMIT);
+                    int fullStatements = chunkRows / ROWS_PER_STATEMENT;
+                    int tailRows = chunkRows % ROWS_PER_STATEMENT;
+
+                    if (fullStatements > 0) {
+                        try (PreparedStatement stmt = conn.prepareStatement(fullSql, Statement.RETURN_GENERATED_KEYS)) {
+                            for (int i = 0; i < fullStatements; i++) {
+                                bindRows(stmt, iterator, ROWS_PER_STATEMENT, columnCount, binder, listener != null ? chunk : null);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                            collectIds(stmt, ids, reader);
+                        }
+                    }
+
+                    if (tailRows > 0) {
+                        String tailSql = buildSql(table, columns, columnCount, tailRows) + suffix;
+                        try (PreparedStatement stmt = conn.prepareStatement(tailSql, Statement.RETURN_GENERATED_KEYS)) {
+                            bindRows(stmt, iterator, tailRows, columnCount, binder, listener != null ? chunk : null);
+                            stmt.executeUpdate();
+                            collectIds(stmt, ids, reader);
+                        }
+                    }
+
+                    if (listener != null) {
+                        listener.beforeCommit(conn, chunk);
+                        chunk.clear();
+                    }
+                    conn.commit();
+                    committed += chunkRows;
+                    remaining -= chunkRows;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new BulkInsertException("Bulk insert into " + table + " failed after " + committed
+                        + " committed rows: " + e.getMessage(), committed, e);
+            }
+        }
+        return ids;
+    }
+
+    // chunk, when not null, collects the bound entities for the ChunkListener
+    private static <T> void bindRows(PreparedStatement stmt, Iterator<T> iterator, int rows,
+                                     int columnCount, RowBinder<T> binder, List<T> chunk) throws SQLException {
+        for (int row = 0; row < rows; row++) {
+            T entity = iterator.next();
+            binder.bind(stmt, row * columnCount, entity);
+            if (chunk != null) {
+                chunk.add(entity);
+            }
+        }
+    }
+
+    private static <R> void collectIds(PreparedStatement stmt, List<R> ids, KeyReader<R> reader) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            while (keys.next()) {
+                ids.add(reader.read(keys));
+            }
+        }
+    }
+
+    private static String buildSql(String table, String columns, int columnCount, int rows) {
+        String placeholders = "(" + "?, ".repeat(columnCount - 1) + "?)";
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+                .append(table).append(" (").append(columns).append(") VALUES ");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+}
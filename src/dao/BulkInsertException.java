@@ -0,0 +1,23 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by the saveAll bulk inserts when a chunk fails. Chunks are committed in the order of
+ * the given entities, so the first getCommittedRows() entities are in the database and the
+ * remaining ones are not.
+ */
+public class BulkInsertException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final int committedRows;
+
+    public BulkInsertException(String message, int committedRows, SQLException cause) {
+        super(message, cause.getSQLState(), cause);
+        this.committedRows = committedRows;
+    }
+
+    public int getCommittedRows() {
+        return committedRows;
+    }
+}
@@ -1,17 +1,44 @@
 package dao;
 
 import entity.*;
+import util.AppConfig;
+import util.CacheStats;
 import util.DBUtil;
+import util.Montants;
+import util.TtlCache;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 
 public class CarteDAO implements BaseDAO<Carte, Integer> {
 
+    // Read-through cache shared by all CarteDAO instances. Cards are mutable, so copies are
+    // stored and returned. Writes made outside this process are only seen once entries expire.
+    private static final TtlCache<Integer, Carte> CACHE = new TtlCache<>(
+            AppConfig.getInt("cache.carte.maxSize", 10_000),
+            AppConfig.getLong("cache.carte.ttlMs", 60_000));
+    // numero -> id; checked against the cached card, so a stale mapping is just a miss
+    private static final TtlCache<String, Integer> NUMERO_CACHE = new TtlCache<>(
+            AppConfig.getInt("cache.carte.maxSize", 10_000),
+            AppConfig.getLong("cache.carte.ttlMs", 60_000));
+
+    public static CacheStats getCacheStats() {
+        return CACHE.getStats();
+    }
+
+    public static CacheStats getNumeroCacheStats() {
+        return NUMERO_CACHE.getStats();
+    }
+
     @Override
     public void save(Carte carte) throws SQLException {
         String sql = """
@@ -24,30 +51,7 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, carte.getNumero());
-            stmt.setDate(2, carte.getDateExpiration());
-            stmt.setString(3, carte.getStatus());
-            stmt.setString(4, carte.getClass().getSimpleName());
-
-            // Set type-specific fields
-            if (carte instanceof CarteDebit debit) {
-                stmt.setBigDecimal(5, debit.getPlafondJournalier());
-                stmt.setNull(6, Types.DECIMAL);
-                stmt.setNull(7, Types.DECIMAL);
-                stmt.setNull(8, Types.DECIMAL);
-            } else if (carte instanceof CarteCredit credit) {
-                stmt.setNull(5, Types.DECIMAL);
-                stmt.setBigDecimal(6, credit.getPlafondMensuel());
-                stmt.setBigDecimal(7, credit.getTauxInteret());
-                stmt.setNull(8, Types.DECIMAL);
-            } else if (carte instanceof CartePrepayee prepayee) {
-                stmt.setNull(5, Types.DECIMAL);
-                stmt.setNull(6, Types.DECIMAL);
-                stmt.setNull(7, Types.DECIMAL);
-                stmt.setBigDecimal(8, prepayee.getSoldeDisponible());
-            }
-
-            stmt.setLong(9, carte.getClientId());
+            bindCarte(stmt, 0, carte);
 
             stmt.executeUpdate();
 
@@ -59,9 +63,29 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
         }
     }
 
+    @Override
+    public List<Integer> saveAll(Collection<Carte> cartes) throws SQLException {
+        List<Integer> ids = BatchInsert.insert("carte",
+                "numero, dateexpiration, statut, typecarte, plafondjournalier, plafondmensuel, "
+                        + "tauxinteret, soldedisponible, idclient",
+                9, cartes, this::bindCarte);
+
+        Iterator<Integer> idIterator = ids.iterator();
+        for (Carte carte : cartes) {
+            carte.setId(idIterator.next());
+        }
+        return ids;
+    }
+
     @Override
     public Optional<Carte> findById(Integer id) throws SQLException {
+        Carte cached = CACHE.get(id);
+        if (cached != null) {
+            return Optional.of(copier(cached));
+        }
+
         String sql = "SELECT * FROM carte WHERE id = ?";
+        long generation = CACHE.generation();
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -70,7 +94,9 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapResultSetToCarte(rs));
+                    Carte carte = mapResultSetToCarte(rs);
+                    mettreEnCache(carte, generation);
+                    return Optional.of(carte);
                 }
             }
         }
@@ -83,8 +109,8 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
         List<Carte> cartes = new ArrayList<>();
 
         try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 cartes.add(mapResultSetToCarte(rs));
@@ -93,45 +119,26 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
         return cartes;
     }
 
+    // An existing balance is kept: it only changes through debiterSolde/crediterSolde, so
+    // rewriting a card read earlier cannot undo a concurrent debit
     @Override
     public void update(Carte carte) throws SQLException {
         String sql = """
             UPDATE carte SET numero = ?, dateexpiration = ?, statut = ?, 
                            typecarte = ?, plafondjournalier = ?, plafondmensuel = ?, 
-                           tauxinteret = ?, soldedisponible = ?, idclient = ? 
+                           tauxinteret = ?, soldedisponible = COALESCE(soldedisponible, ?), idclient = ? 
             WHERE id = ?
             """;
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, carte.getNumero());
-            stmt.setDate(2, carte.getDateExpiration());
-            stmt.setString(3, carte.getStatus());
-            stmt.setString(4, carte.getClass().getSimpleName());
-
-            // Set type-specific fields
-            if (carte instanceof CarteDebit debit) {
-                stmt.setBigDecimal(5, debit.getPlafondJournalier());
-                stmt.setNull(6, Types.DECIMAL);
-                stmt.setNull(7, Types.DECIMAL);
-                stmt.setNull(8, Types.DECIMAL);
-            } else if (carte instanceof CarteCredit credit) {
-                stmt.setNull(5, Types.DECIMAL);
-                stmt.setBigDecimal(6, credit.getPlafondMensuel());
-                stmt.setBigDecimal(7, credit.getTauxInteret());
-                stmt.setNull(8, Types.DECIMAL);
-            } else if (carte instanceof CartePrepayee prepayee) {
-                stmt.setNull(5, Types.DECIMAL);
-                stmt.setNull(6, Types.DECIMAL);
-                stmt.setNull(7, Types.DECIMAL);
-                stmt.setBigDecimal(8, prepayee.getSoldeDisponible());
-            }
-
-            stmt.setLong(9, carte.getClientId());
+            bindCarte(stmt, 0, carte);
             stmt.setLong(10, carte.getId());
 
             stmt.executeUpdate();
+        } finally {
+            CACHE.invalidate(carte.getId());
         }
     }
 
@@ -144,6 +151,8 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
 
             stmt.setInt(1, id);
             stmt.executeUpdate();
+        } finally {
+            CACHE.invalidate(id);
         }
     }
 
@@ -184,8 +193,56 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
         return cartes;
     }
 
+    // Batch lookup: cached cards are served from memory, the others are read in a single
+    // query (id = ANY(array)); ids without a card are absent from the map
+    public Map<Integer, Carte> findByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Carte> cartes = new LinkedHashMap<>();
+        List<Integer> manquants = new ArrayList<>();
+        for (Integer id : ids) {
+            Carte cached = CACHE.get(id);
+            if (cached != null) {
+                cartes.put(id, copier(cached));
+            } else {
+                manquants.add(id);
+            }
+        }
+        if (manquants.isEmpty()) {
+            return cartes;
+        }
+
+        String sql = "SELECT * FROM carte WHERE id = ANY(?)";
+        long generation = CACHE.generation();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Array idsArray = conn.createArrayOf("integer", manquants.toArray());
+            stmt.setArray(1, idsArray);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Carte carte = mapResultSetToCarte(rs);
+                    mettreEnCache(carte, generation);
+                    cartes.put(carte.getId(), carte);
+                }
+            } finally {
+                idsArray.free();
+            }
+        }
+        return cartes;
+    }
+
     public Optional<Carte> findByNumero(String numero) throws SQLException {
+        Integer cachedId = NUMERO_CACHE.get(numero);
+        if (cachedId != null) {
+            Carte cached = CACHE.get(cachedId);
+            if (cached != null && numero.equals(cached.getNumero())) {
+                return Optional.of(copier(cached));
+            }
+        }
+
         String sql = "SELECT * FROM carte WHERE numero = ?";
+        long generation = CACHE.generation();
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -194,15 +251,183 @@ public class CarteDAO implements BaseDAO<Carte, Integer> {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapResultSetToCarte(rs));
+                    Carte carte = mapResultSetToCarte(rs);
+                    mettreEnCache(carte, generation);
+                    return Optional.of(carte);
                 }
             }
         }
         return Optional.empty();
     }
 
-    // Helper method to map ResultSet to Carte
-    private Carte mapResultSetToCarte(ResultSet rs) throws SQLException {
+    // Lowest and highest card id, or null when there is no card
+    public int[] findIdBounds() throws SQLException {
+        String sql = "SELECT MIN(id) AS premier, MAX(id) AS dernier FROM carte";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            rs.next();
+            int premier = rs.getInt("premier");
+            return rs.wasNull() ? null : new int[] {premier, rs.getInt("dernier")};
+        }
+    }
+
+    // Sets the status of many cards in one statement; returns the number of cards updated
+    public int updateStatut(Collection<Integer> ids, String statut) throws SQLException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "UPDATE carte SET statut = ? WHERE id = ANY(?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Array idsArray = conn.createArrayOf("integer", ids.toArray());
+            try {
+                stmt.setString(1, statut);
+                stmt.setArray(2, idsArray);
+                return stmt.executeUpdate();
+            } finally {
+                idsArray.free();
+            }
+        } finally {
+            ids.forEach(CACHE::invalidate);
+        }
+    }
+
+    /**
+     * Debits a prepaid card in one conditional UPDATE, so concurrent debits can never take the
+     * balance below zero. Amounts are in cents. Returns the new balance, or empty when the card
+     * is not a prepaid card or its balance is too low.
+     */
+    public OptionalLong debiterSolde(int id, long montant) throws SQLException {
+        if (montant <= 0) {
+            throw new IllegalArgumentException("Debit amount must be positive: " + montant);
+        }
+
+        String sql = """
+            UPDATE carte SET soldedisponible = soldedisponible - ?
+            WHERE id = ? AND typecarte = 'CartePrepayee' AND soldedisponible >= ?
+            RETURNING soldedisponible
+            """;
+        return modifierSolde(sql, id, montant, true);
+    }
+
+    // Credits a prepaid card (cents); returns the new balance, or empty when the card is not a prepaid card
+    public OptionalLong crediterSolde(int id, long montant) throws SQLException {
+        if (montant <= 0) {
+            throw new IllegalArgumentException("Credit amount must be positive: " + montant);
+        }
+
+        String sql = """
+            UPDATE carte SET soldedisponible = COALESCE(soldedisponible, 0) + ?
+            WHERE id = ? AND typecarte = 'CartePrepayee'
+            RETURNING soldedisponible
+            """;
+        return modifierSolde(sql, id, montant, false);
+    }
+
+    private OptionalLong modifierSolde(String sql, int id, long montant, boolean conditionnel) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Montants.ecrire(stmt, 1, montant);
+            stmt.setInt(2, id);
+            if (conditionnel) {
+                Montants.ecrire(stmt, 3, montant);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? OptionalLong.of(Montants.lire(rs, "soldedisponible")) : OptionalLong.empty();
+            }
+        } finally {
+            CACHE.invalidate(id);
+        }
+    }
+
+    // For DAOs whose statements change a card row (OperationDAO.autoriser debits prepaid balances)
+    static void invaliderCache(int id) {
+        CACHE.invalidate(id);
+    }
+
+    // Aggregate queries: number of cards per card type / per status
+    public Map<String, Long> countByType() throws SQLException {
+        return countGroupedBy("typecarte");
+    }
+
+    public Map<String, Long> countByStatut() throws SQLException {
+        return countGroupedBy("statut");
+    }
+
+    // column is one of the constant column names above, never user input
+    private Map<String, Long> countGroupedBy(String column) throws SQLException {
+        String sql = "SELECT " + column + " AS cle, COUNT(*) AS nombre FROM carte GROUP BY " + column + " ORDER BY " + column;
+        Map<String, Long> compteurs = new LinkedHashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                compteurs.put(rs.getString("cle"), rs.getLong("nombre"));
+            }
+        }
+        return compteurs;
+    }
+
+    private void mettreEnCache(Carte carte, long generation) {
+        CACHE.put(carte.getId(), copier(carte), generation);
+        NUMERO_CACHE.put(carte.getNumero(), carte.getId(), NUMERO_CACHE.generation());
+    }
+
+    // Deep copy, so callers can modify the card they got without touching the cached one
+    private static Carte copier(Carte carte) {
+        Date expiration = carte.getDateExpiration() != null ? new Date(carte.getDateExpiration().getTime()) : null;
+
+        return switch (carte) {
+            case CarteDebit debit -> new CarteDebit(debit.getId(), debit.getNumero(), expiration,
+                    debit.getStatus(), debit.getClientId(), debit.getPlafondJournalier());
+            case CarteCredit credit -> new CarteCredit(credit.getId(), credit.getNumero(), expiration,
+                    credit.getStatus(), credit.getClientId(), credit.getPlafondMensuel(), credit.getTauxInteret());
+            case CartePrepayee prepayee -> new CartePrepayee(prepayee.getId(), prepayee.getNumero(), expiration,
+                    prepayee.getStatus(), prepayee.getClientId(), prepayee.getSoldeDisponible());
+            default -> new Carte(carte.getId(), carte.getNumero(), expiration, carte.getStatus(), carte.getClientId());
+        };
+    }
+
+    // Helper method to bind the 9 insert/update columns of a Carte starting at offset + 1
+    private void bindCarte(PreparedStatement stmt, int offset, Carte carte) throws SQLException {
+        stmt.setString(offset + 1, carte.getNumero());
+        stmt.setDate(offset + 2, carte.getDateExpiration());
+        stmt.setString(offset + 3, carte.getStatus());
+        stmt.setString(offset + 4, carte.getClass().getSimpleName());
+
+        // Set type-specific fields
+        if (carte instanceof CarteDebit debit) {
+            stmt.setBigDecimal(offset + 5, debit.getPlafondJournalier());
+            stmt.setNull(offset + 6, Types.DECIMAL);
+            stmt.setNull(offset + 7, Types.DECIMAL);
+            stmt.setNull(offset + 8, Types.DECIMAL);
+        } else if (carte instanceof CarteCredit credit) {
+            stmt.setNull(offset + 5, Types.DECIMAL);
+            stmt.setBigDecimal(offset + 6, credit.getPlafondMensuel());
+            stmt.setBigDecimal(offset + 7, credit.getTauxInteret());
+            stmt.setNull(offset + 8, Types.DECIMAL);
+        } else if (carte instanceof CartePrepayee prepayee) {
+            stmt.setNull(offset + 5, Types.DECIMAL);
+            stmt.setNull(offset + 6, Types.DECIMAL);
+            stmt.setNull(offset + 7, Types.DECIMAL);
+            stmt.setBigDecimal(offset + 8, prepayee.getSoldeDisponible());
+        }
+
+        stmt.setLong(offset + 9, carte.getClientId());
+    }
+
+    // Helper method to map ResultSet to Carte (package-private for the mapping benchmark)
+    Carte mapResultSetToCarte(ResultSet rs) throws SQLException {
         String typeCarte = rs.getString("typecarte");
 
         return switch (typeCarte) {
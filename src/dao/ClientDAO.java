@@ -4,6 +4,7 @@ import util.DBUtil;
 import java.sql.*;
 import entity.Client;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,17 @@ public class ClientDAO implements BaseDAO<Client, Integer> {
         }
     }
 
+    @Override
+    public List<Integer> saveAll(Collection<Client> clients) throws SQLException {
+        return BatchInsert.insert("client", "nom, email, telephone, password", 4, clients,
+                (stmt, offset, client) -> {
+                    stmt.setString(offset + 1, client.getNom());
+                    stmt.setString(offset + 2, client.getEmail());
+                    stmt.setString(offset + 3, client.getTelephone());
+                    stmt.setString(offset + 4, client.getPassword());
+                });
+    }
+
     @Override
     public Optional<Client> findById(Integer clientId) throws SQLException {
         String sql = "SELECT * FROM Client WHERE id = ?";
@@ -34,10 +46,10 @@ public class ClientDAO implements BaseDAO<Client, Integer> {
              PreparedStatement stmt = connection.prepareStatement(sql)) {
 
             stmt.setInt(1, clientId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return Optional.of(mapResultSetToClient(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToClient(rs));
+                }
             }
         }
         return Optional.empty();
@@ -96,10 +108,10 @@ public class ClientDAO implements BaseDAO<Client, Integer> {
 
             stmt.setString(1, email);
             stmt.setString(2, password);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return Optional.of(mapResultSetToClient(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToClient(rs));
+                }
             }
         }
         return Optional.empty();
@@ -112,10 +124,10 @@ public class ClientDAO implements BaseDAO<Client, Integer> {
              PreparedStatement stmt = connection.prepareStatement(sql)) {
 
             stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return Optional.of(mapResultSetToClient(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToClient(rs));
+                }
             }
         }
         return Optional.empty();
@@ -0,0 +1,139 @@
+package dao;
+
+import entity.CumulCarte;
+import entity.OperationCarte;
+import util.DBUtil;
+import util.Montants;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+
+// Rows are written together with the operations they count: by OperationDAO.autoriser for
+// a single operation, and in the transaction of the rows for OperationDAO.saveAll and
+// OperationImportDAO.importCsv
+public class CumulCarteDAO {
+
+    // Adds new amounts to a card's totals; a total of a day or month that is over is replaced
+    static final String CUMUL_ON_CONFLICT_SQL = """
+             ON CONFLICT (idcarte) DO UPDATE SET
+                montantjour = CASE WHEN cumulcarte.jour = EXCLUDED.jour
+                                   THEN cumulcarte.montantjour + EXCLUDED.montantjour
+                                   ELSE EXCLUDED.montantjour END,
+                montantmois = CASE WHEN cumulcarte.mois = EXCLUDED.mois
+                                   THEN cumulcarte.montantmois + EXCLUDED.montantmois
+                                   ELSE EXCLUDED.montantmois END,
+                jour = EXCLUDED.jour,
+                mois = EXCLUDED.mois
+            """;
+
+    private static final String AJOUTER_SQL =
+            "INSERT INTO cumulcarte (idcarte, jour, montantjour, mois, montantmois) VALUES (?, ?, ?, ?, ?)"
+                    + CUMUL_ON_CONFLICT_SQL;
+
+    // Same computation as the V6 seed, but overwriting existing rows
+    private static final String RECALCULER_SQL = """
+            INSERT INTO cumulcarte (idcarte, jour, montantjour, mois, montantmois)
+            SELECT idcarte,
+                   CURRENT_DATE,
+                   COALESCE(SUM(montant) FILTER (WHERE date >= CURRENT_DATE), 0),
+                   date_trunc('month', CURRENT_DATE)::date,
+                   SUM(montant)
+            FROM operationcarte
+            WHERE date >= date_trunc('month', CURRENT_DATE)
+              AND idcarte IS NOT NULL
+            GROUP BY idcarte
+            ON CONFLICT (idcarte) DO UPDATE SET
+                jour = EXCLUDED.jour,
+                montantjour = EXCLUDED.montantjour,
+                mois = EXCLUDED.mois,
+                montantmois = EXCLUDED.montantmois
+            """;
+
+    public Optional<CumulCarte> findByCarteId(int carteId) throws SQLException {
+        String sql = "SELECT * FROM cumulcarte WHERE idcarte = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, carteId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToCumul(rs));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Rebuilds the current day and month totals from operationcarte, for operations loaded
+     * outside OperationDAO.autoriser (bulk imports, generated data). Returns the rows written.
+     * Running MoteurPlafonds instances keep their in-memory totals until restarted.
+     */
+    public int recalculer() throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(RECALCULER_SQL)) {
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds operations recorded in bulk to the totals, on the caller's connection so that they
+     * are committed with the operations. Only operations of the current month count (and those
+     * of today for the day total); older ones belong to periods that are over. Dates are taken
+     * from the JVM clock, like MoteurPlafonds.
+     */
+    void ajouter(Connection conn, Collection<OperationCarte> operations) throws SQLException {
+        LocalDate jour = LocalDate.now();
+        LocalDate mois = jour.withDayOfMonth(1);
+
+        // [day, month] in cents; sorted by card so that concurrent batches lock rows in the same order
+        Map<Integer, long[]> totaux = new TreeMap<>();
+        for (OperationCarte operation : operations) {
+            if (operation.date() == null) {
+                continue;
+            }
+            LocalDate date = operation.date().toLocalDateTime().toLocalDate();
+            if (date.isBefore(mois) || date.isAfter(jour)) {
+                continue;
+            }
+            long[] total = totaux.computeIfAbsent(operation.idCarte(), id -> new long[2]);
+            if (date.equals(jour)) {
+                total[0] += operation.montant();
+            }
+            total[1] += operation.montant();
+        }
+        if (totaux.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(AJOUTER_SQL)) {
+            for (Map.Entry<Integer, long[]> total : totaux.entrySet()) {
+                stmt.setInt(1, total.getKey());
+                stmt.setDate(2, Date.valueOf(jour));
+                Montants.ecrire(stmt, 3, total.getValue()[0]);
+                stmt.setDate(4, Date.valueOf(mois));
+                Montants.ecrire(stmt, 5, total.getValue()[1]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Helper method to map ResultSet to CumulCarte
+    private CumulCarte mapResultSetToCumul(ResultSet rs) throws SQLException {
+        return new CumulCarte(
+                rs.getInt("idcarte"),
+                rs.getDate("jour").toLocalDate(),
+                Montants.lire(rs, "montantjour"),
+                rs.getDate("mois").toLocalDate(),
+                Montants.lire(rs, "montantmois")
+        );
+    }
+}
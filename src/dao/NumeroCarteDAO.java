@@ -0,0 +1,45 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class NumeroCarteDAO {
+
+    // Number of account numbers covered by one block (the INCREMENT of carte_numero_bloc_seq)
+    public int tailleBloc() throws SQLException {
+        String sql = "SELECT increment_by FROM pg_sequences WHERE sequencename = 'carte_numero_bloc_seq'";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            if (!rs.next()) {
+                throw new SQLException("Sequence carte_numero_bloc_seq is missing (migration V4)");
+            }
+            return (int) rs.getLong(1);
+        }
+    }
+
+    // Reserves nombre blocks in one round-trip and returns the first account number of each
+    public List<Long> reserverBlocs(int nombre) throws SQLException {
+        String sql = "SELECT nextval('carte_numero_bloc_seq') FROM generate_series(1, ?)";
+        List<Long> debuts = new ArrayList<>(nombre);
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, nombre);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    debuts.add(rs.getLong(1));
+                }
+            }
+        }
+        return debuts;
+    }
+}
@@ -1,33 +1,168 @@
 package dao;
 
+import entity.MotifRefus;
 import entity.OperationCarte;
+import entity.ResultatAutorisation;
+import entity.StatistiqueOperation;
 import util.DBUtil;
+import util.Montants;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class OperationDAO implements BaseDAO<OperationCarte, Integer> {
+    // Rows fetched per round-trip by cursor-based queries
+    private static final int FETCH_SIZE = 1000;
+
+    private final CumulCarteDAO cumulCarteDAO = new CumulCarteDAO();
+
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
 
     @Override
     public void save(OperationCarte operation) throws SQLException {
-        String sql = "INSERT INTO operationcarte (date, montant, type, lieu, idcarte) VALUES (?, ?, ?, ?, ?)";
+        insertReturningId(operation);
+    }
+
+    // Same as save, returning the generated id in the same round-trip
+    public int insertReturningId(OperationCarte operation) throws SQLException {
+        String sql = "INSERT INTO operationcarte (date, montant, type, lieu, idcarte) VALUES (?, ?, ?, ?, ?) RETURNING id";
 
         try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setTimestamp(1, operation.date());
-            stmt.setDouble(2, operation.montant());
+            Montants.ecrire(stmt, 2, operation.montant());
             stmt.setString(3, operation.type());
             stmt.setString(4, operation.lieu());
             stmt.setInt(5, operation.idCarte());
 
-            stmt.executeUpdate();
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt("id");
+            }
         }
     }
 
+    /**
+     * Checks the card and inserts the operation in one statement. The card row is locked
+     * FOR NO KEY UPDATE, so its status cannot change between the check and the insert. A prepaid
+     * card is debited by the same statement with a conditional UPDATE, and the operation is only
+     * inserted if the debit succeeded. The query always returns one row describing the card,
+     * from which the refusal reason is derived. The card's running totals in cumulcarte are
+     * updated by the same statement, restarting at a new day or month.
+     */
+    public ResultatAutorisation autoriser(OperationCarte operation) throws SQLException {
+        if (operation.montant() <= 0) {
+            throw new IllegalArgumentException("Operation amount must be positive: " + operation.montant());
+        }
+
+        // The lock is taken for update rather than for share: two statements holding a shared
+        // lock on the same prepaid card would deadlock when both try to debit it
+        String sql = """
+            WITH carte_verifiee AS (
+                SELECT id, statut, typecarte, dateexpiration < CURRENT_DATE AS expiree
+                FROM carte
+                WHERE id = ?
+                FOR NO KEY UPDATE
+            ), debit AS (
+                UPDATE carte SET soldedisponible = soldedisponible - ?
+                WHERE id = (SELECT id FROM carte_verifiee
+                            WHERE statut = 'ACTIVE' AND expiree IS NOT TRUE AND typecarte = 'CartePrepayee')
+                  AND soldedisponible >= ?
+                RETURNING id
+            ), inseree AS (
+                INSERT INTO operationcarte (date, montant, type, lieu, idcarte)
+                SELECT ?, ?, ?, ?, id
+                FROM carte_verifiee
+                WHERE statut = 'ACTIVE' AND expiree IS NOT TRUE
+                  AND (typecarte <> 'CartePrepayee' OR EXISTS (SELECT 1 FROM debit))
+                RETURNING id, idcarte, date, montant
+            ), cumul AS (
+                INSERT INTO cumulcarte (idcarte, jour, montantjour, mois, montantmois)
+                SELECT idcarte, date::date, montant, date_trunc('month', date)::date, montant
+                FROM inseree
+                ON CONFLICT (idcarte) DO UPDATE SET
+                    montantjour = CASE WHEN cumulcarte.jour = EXCLUDED.jour
+                                       THEN cumulcarte.montantjour + EXCLUDED.montantjour
+                                       ELSE EXCLUDED.montantjour END,
+                    montantmois = CASE WHEN cumulcarte.mois = EXCLUDED.mois
+                                       THEN cumulcarte.montantmois + EXCLUDED.montantmois
+                                       ELSE EXCLUDED.montantmois END,
+                    jour = EXCLUDED.jour,
+                    mois = EXCLUDED.mois
+            )
+            SELECT c.statut, c.expiree, c.typecarte, (SELECT id FROM inseree) AS idoperation
+            FROM (SELECT 1) AS ligne
+            LEFT JOIN carte_verifiee c ON true
+            """;
+
+        BigDecimal montant = Montants.enDecimal(operation.montant());
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, operation.idCarte());
+            stmt.setBigDecimal(2, montant);
+            stmt.setBigDecimal(3, montant);
+            stmt.setTimestamp(4, operation.date());
+            stmt.setBigDecimal(5, montant);
+            stmt.setString(6, operation.type());
+            stmt.setString(7, operation.lieu());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                String statut = rs.getString("statut");
+                int idOperation = rs.getInt("idoperation");
+                if (!rs.wasNull()) {
+                    if ("CartePrepayee".equals(rs.getString("typecarte"))) {
+                        CarteDAO.invaliderCache(operation.idCarte());
+                    }
+                    return ResultatAutorisation.autorisee(idOperation);
+                }
+
+                if (statut == null) {
+                    return ResultatAutorisation.refusee(MotifRefus.CARTE_INCONNUE, null);
+                }
+                if (!"ACTIVE".equals(statut)) {
+                    return ResultatAutorisation.refusee(MotifRefus.CARTE_INACTIVE, statut);
+                }
+                if (rs.getBoolean("expiree")) {
+                    return ResultatAutorisation.refusee(MotifRefus.CARTE_EXPIREE, statut);
+                }
+                // Active and valid: only the prepaid debit can have refused the operation
+                return ResultatAutorisation.refusee(MotifRefus.SOLDE_INSUFFISANT, statut);
+            }
+        }
+    }
+
+    // The card totals in cumulcarte are updated in the transaction of each committed chunk
+    @Override
+    public List<Integer> saveAll(Collection<OperationCarte> operations) throws SQLException {
+        return BatchInsert.insert("operationcarte", "date, montant, type, lieu, idcarte", 5, operations,
+                (stmt, offset, operation) -> {
+                    stmt.setTimestamp(offset + 1, operation.date());
+                    Montants.ecrire(stmt, offset + 2, operation.montant());
+                    stmt.setString(offset + 3, operation.type());
+                    stmt.setString(offset + 4, operation.lieu());
+                    stmt.setInt(offset + 5, operation.idCarte());
+                },
+                cumulCarteDAO::ajouter);
+    }
+
     @Override
     public Optional<OperationCarte> findById(Integer id) throws SQLException {
         String sql = "SELECT * FROM operationcarte WHERE id = ?";
@@ -52,8 +187,8 @@ public class OperationDAO implements BaseDAO<OperationCarte, Integer> {
         List<OperationCarte> operations = new ArrayList<>();
 
         try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 operations.add(mapResultSetToOperation(rs));
@@ -117,12 +252,364 @@ public class OperationDAO implements BaseDAO<OperationCarte, Integer> {
         return operations;
     }
 
-    // Helper method to map ResultSet to OperationCarte
-    private OperationCarte mapResultSetToOperation(ResultSet rs) throws SQLException {
+    // Date-bounded queries: the range on date lets PostgreSQL skip the monthly partitions outside it
+    public List<OperationCarte> findByCarteIdSince(int carteId, Timestamp depuis) throws SQLException {
+        String sql = "SELECT * FROM operationcarte WHERE idcarte = ? AND date >= ? ORDER BY date DESC, id DESC";
+        return findRows(sql, stmt -> {
+            stmt.setInt(1, carteId);
+            stmt.setTimestamp(2, depuis);
+        });
+    }
+
+    // Operations with debut <= date < fin
+    public List<OperationCarte> findByCarteIdBetween(int carteId, Timestamp debut, Timestamp fin) throws SQLException {
+        String sql = """
+            SELECT * FROM operationcarte
+            WHERE idcarte = ? AND date >= ? AND date < ?
+            ORDER BY date DESC, id DESC
+            """;
+        return findRows(sql, stmt -> {
+            stmt.setInt(1, carteId);
+            stmt.setTimestamp(2, debut);
+            stmt.setTimestamp(3, fin);
+        });
+    }
+
+    public List<OperationCarte> findByTypeBetween(String type, Timestamp debut, Timestamp fin) throws SQLException {
+        String sql = """
+            SELECT * FROM operationcarte
+            WHERE type = ? AND date >= ? AND date < ?
+            ORDER BY date DESC, id DESC
+            """;
+        return findRows(sql, stmt -> {
+            stmt.setString(1, type);
+            stmt.setTimestamp(2, debut);
+            stmt.setTimestamp(3, fin);
+        });
+    }
+
+    public List<OperationCarte> findByClientIdSince(int clientId, Timestamp depuis) throws SQLException {
+        String sql = """
+            SELECT o.* FROM operationcarte o
+            JOIN carte c ON c.id = o.idcarte
+            WHERE c.idclient = ? AND o.date >= ?
+            ORDER BY o.date DESC, o.id DESC
+            """;
+        return findRows(sql, stmt -> {
+            stmt.setInt(1, clientId);
+            stmt.setTimestamp(2, depuis);
+        });
+    }
+
+    // Aggregate queries: grouping is done by PostgreSQL, only the result rows are transferred
+    public List<StatistiqueOperation> countAndSumByType() throws SQLException {
+        String sql = """
+            SELECT type, COUNT(*) AS nombre, COALESCE(SUM(montant), 0) AS montanttotal
+            FROM operationcarte
+            GROUP BY type
+            ORDER BY type
+            """;
+        List<StatistiqueOperation> statistiques = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                statistiques.add(mapResultSetToStatistique(rs, rs.getString("type")));
+            }
+        }
+        return statistiques;
+    }
+
+    public StatistiqueOperation countAndSum() throws SQLException {
+        String sql = "SELECT COUNT(*) AS nombre, COALESCE(SUM(montant), 0) AS montanttotal FROM operationcarte";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            rs.next();
+            return mapResultSetToStatistique(rs, "TOUS");
+        }
+    }
+
+    // Card id -> number of operations, most used cards first
+    public Map<Integer, Long> findTopCartesByCount(int limit) throws SQLException {
+        String sql = """
+            SELECT idcarte, COUNT(*) AS nombre
+            FROM operationcarte
+            GROUP BY idcarte
+            ORDER BY nombre DESC, idcarte
+            LIMIT ?
+            """;
+        Map<Integer, Long> utilisation = new LinkedHashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    utilisation.put(rs.getInt("idcarte"), rs.getLong("nombre"));
+                }
+            }
+        }
+        return utilisation;
+    }
+
+    // Client-scoped queries: operationcarte joined to carte on idclient, so only that client's rows are read
+    public List<OperationCarte> findByClientId(int clientId) throws SQLException {
+        String sql = """
+            SELECT o.* FROM operationcarte o
+            JOIN carte c ON c.id = o.idcarte
+            WHERE c.idclient = ?
+            ORDER BY o.date DESC, o.id DESC
+            """;
+        return findRows(sql, stmt -> stmt.setInt(1, clientId));
+    }
+
+    public List<StatistiqueOperation> countAndSumByTypeForClient(int clientId) throws SQLException {
+        String sql = """
+            SELECT o.type, COUNT(*) AS nombre, COALESCE(SUM(o.montant), 0) AS montanttotal
+            FROM operationcarte o
+            JOIN carte c ON c.id = o.idcarte
+            WHERE c.idclient = ?
+            GROUP BY o.type
+            ORDER BY o.type
+            """;
+        List<StatistiqueOperation> statistiques = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, clientId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    statistiques.add(mapResultSetToStatistique(rs, rs.getString("type")));
+                }
+            }
+        }
+        return statistiques;
+    }
+
+    public StatistiqueOperation countAndSumForClient(int clientId) throws SQLException {
+        String sql = """
+            SELECT COUNT(*) AS nombre, COALESCE(SUM(o.montant), 0) AS montanttotal
+            FROM operationcarte o
+            JOIN carte c ON c.id = o.idcarte
+            WHERE c.idclient = ?
+            """;
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, clientId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return mapResultSetToStatistique(rs, "TOUS");
+            }
+        }
+    }
+
+    // Card id -> number of operations for the client's cards, most used first
+    public Map<Integer, Long> countByCarteForClient(int clientId) throws SQLException {
+        String sql = """
+            SELECT o.idcarte, COUNT(*) AS nombre
+            FROM operationcarte o
+            JOIN carte c ON c.id = o.idcarte
+            WHERE c.idclient = ?
+            GROUP BY o.idcarte
+            ORDER BY nombre DESC, o.idcarte
+            """;
+        Map<Integer, Long> utilisation = new LinkedHashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, clientId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    utilisation.put(rs.getInt("idcarte"), rs.getLong("nombre"));
+                }
+            }
+        }
+        return utilisation;
+    }
+
+    // Cursor-based queries: rows are fetched FETCH_SIZE at a time instead of being materialized in a list
+    public void forEach(RowCallback<OperationCarte> callback) throws SQLException {
+        String sql = "SELECT * FROM operationcarte ORDER BY date DESC, id DESC";
+        forEachRow(sql, stmt -> { }, callback);
+    }
+
+    public void forEachByCarteId(int carteId, RowCallback<OperationCarte> callback) throws SQLException {
+        String sql = "SELECT * FROM operationcarte WHERE idcarte = ? ORDER BY date DESC, id DESC";
+        forEachRow(sql, stmt -> stmt.setInt(1, carteId), callback);
+    }
+
+    // Operations of cards idDebut <= idcarte < idFin, grouped by card and oldest first within a card.
+    // Cards come in descending id order so that the (idcarte, date DESC, id DESC) index is read backwards.
+    public void forEachByCarteRange(int idDebut, int idFin, RowCallback<OperationCarte> callback) throws SQLException {
+        String sql = """
+            SELECT * FROM operationcarte
+            WHERE idcarte >= ? AND idcarte < ?
+            ORDER BY idcarte DESC, date, id
+            """;
+        forEachRow(sql, stmt -> {
+            stmt.setInt(1, idDebut);
+            stmt.setInt(2, idFin);
+        }, callback);
+    }
+
+    // The returned stream holds a connection until it is closed: use it in try-with-resources
+    public Stream<OperationCarte> streamAll() throws SQLException {
+        String sql = "SELECT * FROM operationcarte ORDER BY date DESC, id DESC";
+        return streamRows(sql, stmt -> { });
+    }
+
+    public Stream<OperationCarte> streamByCarteId(int carteId) throws SQLException {
+        String sql = "SELECT * FROM operationcarte WHERE idcarte = ? ORDER BY date DESC, id DESC";
+        return streamRows(sql, stmt -> stmt.setInt(1, carteId));
+    }
+
+    // Keyset pagination: pass the (date, id) of the last row of the previous page, or null for the first page
+    public List<OperationCarte> findPage(Timestamp avantDate, Integer avantId, int limit) throws SQLException {
+        if (avantDate == null) {
+            String sql = "SELECT * FROM operationcarte ORDER BY date DESC, id DESC LIMIT ?";
+            return findRows(sql, stmt -> stmt.setInt(1, limit));
+        }
+        String sql = "SELECT * FROM operationcarte WHERE (date, id) < (?, ?) ORDER BY date DESC, id DESC LIMIT ?";
+        return findRows(sql, stmt -> {
+            stmt.setTimestamp(1, avantDate);
+            stmt.setInt(2, avantId);
+            stmt.setInt(3, limit);
+        });
+    }
+
+    public List<OperationCarte> findPageByCarteId(int carteId, Timestamp avantDate, Integer avantId, int limit) throws SQLException {
+        if (avantDate == null) {
+            String sql = "SELECT * FROM operationcarte WHERE idcarte = ? ORDER BY date DESC, id DESC LIMIT ?";
+            return findRows(sql, stmt -> {
+                stmt.setInt(1, carteId);
+                stmt.setInt(2, limit);
+            });
+        }
+        String sql = """
+            SELECT * FROM operationcarte
+            WHERE idcarte = ? AND (date, id) < (?, ?)
+            ORDER BY date DESC, id DESC LIMIT ?
+            """;
+        return findRows(sql, stmt -> {
+            stmt.setInt(1, carteId);
+            stmt.setTimestamp(2, avantDate);
+            stmt.setInt(3, avantId);
+            stmt.setInt(4, limit);
+        });
+    }
+
+    private List<OperationCarte> findRows(String sql, ParameterBinder binder) throws SQLException {
+        List<OperationCarte> operations = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            binder.bind(stmt);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    operations.add(mapResultSetToOperation(rs));
+                }
+            }
+        }
+        return operations;
+    }
+
+    // PostgreSQL only honours the fetch size (server-side cursor) outside autocommit mode
+    private void forEachRow(String sql, ParameterBinder binder, RowCallback<OperationCarte> callback) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                binder.bind(stmt);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        callback.accept(mapResultSetToOperation(rs));
+                    }
+                }
+            }
+            conn.commit();
+        }
+    }
+
+    private Stream<OperationCarte> streamRows(String sql, ParameterBinder binder) throws SQLException {
+        Connection conn = DBUtil.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs;
+        try {
+            conn.setAutoCommit(false);
+            stmt = conn.prepareStatement(sql);
+            stmt.setFetchSize(FETCH_SIZE);
+            binder.bind(stmt);
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(stmt);
+            closeQuietly(conn);
+            throw e;
+        }
+
+        ResultSet cursor = rs;
+        PreparedStatement statement = stmt;
+        Spliterator<OperationCarte> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super OperationCarte> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapResultSetToOperation(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            closeQuietly(cursor);
+            closeQuietly(statement);
+            closeQuietly(conn);
+        });
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception ignored) {
+            // Nothing useful to do while releasing a cursor
+        }
+    }
+
+    private StatistiqueOperation mapResultSetToStatistique(ResultSet rs, String type) throws SQLException {
+        return new StatistiqueOperation(type, rs.getLong("nombre"), Montants.lire(rs, "montanttotal"));
+    }
+
+    // Helper method to map ResultSet to OperationCarte (package-private for the mapping benchmark)
+    OperationCarte mapResultSetToOperation(ResultSet rs) throws SQLException {
         return new OperationCarte(
                 rs.getInt("id"),
                 rs.getTimestamp("date"),
-                rs.getDouble("montant"),
+                Montants.lire(rs, "montant"),
                 rs.getString("type"),
                 rs.getString("lieu"),
                 rs.getInt("idcarte")
@@ -0,0 +1,151 @@
+package dao;
+
+import entity.RapportImport;
+import org.postgresql.PGConnection;
+import util.DBUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+public class OperationImportDAO {
+
+    public static final String MOTIF_CARTE_INCONNUE = "CARTE_INCONNUE";
+    public static final String MOTIF_CARTE_INACTIVE = "CARTE_INACTIVE";
+    public static final String MOTIF_TYPE_INVALIDE = "TYPE_INVALIDE";
+    public static final String MOTIF_TYPE_MANQUANT = "TYPE_MANQUANT";
+
+    // Staging table lives for the duration of the import transaction only
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE operationcarte_import (
+                date TIMESTAMP,
+                montant DECIMAL(10,2),
+                type VARCHAR(20),
+                lieu VARCHAR(100),
+                idcarte INT
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_SQL =
+            "COPY operationcarte_import (date, montant, type, lieu, idcarte) FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    // Exact complement of INSERT_VALIDES_SQL: every staged row is either imported or counted here
+    // (NULLs included, which NOT IN and <> would let through both queries)
+    private static final String REJETS_SQL = """
+            SELECT CASE
+                       WHEN c.id IS NULL THEN 'CARTE_INCONNUE'
+                       WHEN c.statut IS DISTINCT FROM 'ACTIVE' THEN 'CARTE_INACTIVE'
+                       WHEN s.type IS NULL THEN 'TYPE_MANQUANT'
+                       ELSE 'TYPE_INVALIDE'
+                   END AS motif,
+                   COUNT(*) AS nombre
+            FROM operationcarte_import s
+            LEFT JOIN carte c ON c.id = s.idcarte
+            WHERE c.id IS NULL
+               OR c.statut IS DISTINCT FROM 'ACTIVE'
+               OR s.type IS NULL
+               OR s.type NOT IN ('ACHAT', 'RETRAIT', 'PAIEMENTENLIGNE')
+            GROUP BY 1
+            """;
+
+    // The operations of the current month are added to the card totals by the same statement
+    // (parameters: today, today, first day of the month, first day of the month, tomorrow)
+    private static final String INSERT_VALIDES_SQL = """
+            WITH inseree AS (
+                INSERT INTO operationcarte (date, montant, type, lieu, idcarte)
+                SELECT COALESCE(s.date, now()), s.montant, s.type, s.lieu, s.idcarte
+                FROM operationcarte_import s
+                JOIN carte c ON c.id = s.idcarte AND c.statut = 'ACTIVE'
+                WHERE s.type IN ('ACHAT', 'RETRAIT', 'PAIEMENTENLIGNE')
+                RETURNING idcarte, date, montant
+            ), cumul AS (
+                INSERT INTO cumulcarte (idcarte, jour, montantjour, mois, montantmois)
+                SELECT idcarte, ?, COALESCE(SUM(montant) FILTER (WHERE date >= ?), 0), ?, SUM(montant)
+                FROM inseree
+                WHERE date >= ? AND date < ?
+                GROUP BY idcarte
+                ORDER BY idcarte
+            """ + CumulCarteDAO.CUMUL_ON_CONFLICT_SQL + """
+            )
+            SELECT COUNT(*) FROM inseree
+            """;
+
+    // Cards of the file whose day (debit) or month (credit) total is now above their limit.
+    // Imported operations were already made elsewhere: they are recorded and reported, not refused.
+    private static final String DEPASSEMENTS_SQL = """
+            SELECT COUNT(*)
+            FROM cumulcarte cc
+            JOIN carte c ON c.id = cc.idcarte
+            WHERE cc.idcarte IN (SELECT idcarte FROM operationcarte_import)
+              AND ((c.typecarte = 'CarteDebit' AND cc.jour = ? AND cc.montantjour > c.plafondjournalier)
+                OR (c.typecarte = 'CarteCredit' AND cc.mois = ? AND cc.montantmois > c.plafondmensuel))
+            """;
+
+    /**
+     * Streams a CSV file (header: date,montant,type,lieu,idcarte) into operationcarte with COPY.
+     * Rows are first loaded into a temporary staging table, rows referencing unknown or
+     * inactive cards are rejected in one set-based pass, and the remaining rows are
+     * inserted in the same transaction.
+     */
+    public RapportImport importCsv(InputStream csv) throws SQLException {
+        long debut = System.currentTimeMillis();
+
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_STAGING_SQL);
+                }
+
+                long lignesLues = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, csv);
+
+                Map<String, Long> rejets = new LinkedHashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(REJETS_SQL);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rejets.put(rs.getString("motif"), rs.getLong("nombre"));
+                    }
+                }
+
+                // Same clock as MoteurPlafonds and CumulCarteDAO.ajouter
+                LocalDate jour = LocalDate.now();
+                Date aujourdhui = Date.valueOf(jour);
+                Date mois = Date.valueOf(jour.withDayOfMonth(1));
+
+                long lignesImportees;
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_VALIDES_SQL)) {
+                    stmt.setDate(1, aujourdhui);
+                    stmt.setDate(2, aujourdhui);
+                    stmt.setDate(3, mois);
+                    stmt.setDate(4, mois);
+                    stmt.setDate(5, Date.valueOf(jour.plusDays(1)));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        lignesImportees = rs.getLong(1);
+                    }
+                }
+
+                long cartesAuDelaDuPlafond;
+                try (PreparedStatement stmt = conn.prepareStatement(DEPASSEMENTS_SQL)) {
+                    stmt.setDate(1, aujourdhui);
+                    stmt.setDate(2, mois);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        cartesAuDelaDuPlafond = rs.getLong(1);
+                    }
+                }
+
+                conn.commit();
+                return new RapportImport(lignesLues, lignesImportees, rejets, cartesAuDelaDuPlafond,
+                        System.currentTimeMillis() - debut);
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw new SQLException("CSV import rolled back: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Manages the monthly partitions of operationcarte (see migration V3).
+ * Partitions are named operationcarte_pYYYYMM and cover one calendar month.
+ */
+public class OperationPartitionDAO {
+
+    private static final Pattern NOM_PARTITION = Pattern.compile("operationcarte_p(\\d{4})(\\d{2})");
+
+    // Creates the partition for the month if it does not exist yet and returns its name
+    public String creerPartition(YearMonth mois) throws SQLException {
+        String sql = "SELECT creer_partition_operationcarte(?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDate(1, Date.valueOf(mois.atDay(1)));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    // Month -> partition name for every monthly partition currently attached, oldest first
+    public SortedMap<YearMonth, String> findPartitions() throws SQLException {
+        String sql = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'operationcarte'::regclass
+            """;
+        SortedMap<YearMonth, String> partitions = new TreeMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                Matcher matcher = NOM_PARTITION.matcher(rs.getString("relname"));
+                if (matcher.matches()) {
+                    YearMonth mois = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                    partitions.put(mois, matcher.group());
+                }
+            }
+        }
+        return partitions;
+    }
+
+    // The detached table keeps its rows and can be archived or dropped later
+    public void detacherPartition(String nom) throws SQLException {
+        executerDdl("ALTER TABLE operationcarte DETACH PARTITION " + verifierNom(nom));
+    }
+
+    public void supprimerPartition(String nom) throws SQLException {
+        executerDdl("DROP TABLE " + verifierNom(nom));
+    }
+
+    // Rows whose date falls outside every monthly partition
+    public long countDefaut() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM operationcarte_defaut";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void executerDdl(String sql) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    // Table names cannot be bound as parameters, so only well-formed partition names are accepted
+    private String verifierNom(String nom) {
+        if (nom == null || !NOM_PARTITION.matcher(nom).matches()) {
+            throw new IllegalArgumentException("Not an operationcarte partition: " + nom);
+        }
+        return nom;
+    }
+}
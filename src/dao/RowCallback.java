@@ -0,0 +1,9 @@
+package dao;
+
+import java.sql.SQLException;
+
+// Receives rows one at a time from cursor-based DAO queries
+@FunctionalInterface
+public interface RowCallback<T> {
+    void accept(T row) throws SQLException;
+}
@@ -0,0 +1,17 @@
+package dao;
+
+import java.sql.SQLException;
+
+// Wraps SQLException thrown while consuming a Stream returned by a DAO
+public class UncheckedSQLException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,40 @@
+-- Baseline schema. IF NOT EXISTS lets databases created with script.sql be adopted as-is.
+CREATE TABLE IF NOT EXISTS client (
+    id SERIAL PRIMARY KEY,
+    nom VARCHAR(100),
+    email VARCHAR(100),
+    telephone VARCHAR(20),
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS carte (
+    id SERIAL PRIMARY KEY,
+    numero VARCHAR(20) UNIQUE,
+    dateexpiration DATE,
+    statut VARCHAR(20),
+    typecarte VARCHAR(20),
+    plafondjournalier DECIMAL(10,2),
+    plafondmensuel DECIMAL(10,2),
+    tauxinteret DECIMAL(5,2),
+    soldedisponible DECIMAL(10,2),
+    idclient INT,
+    FOREIGN KEY (idclient) REFERENCES client(id)
+);
+
+CREATE TABLE IF NOT EXISTS operationcarte (
+    id SERIAL PRIMARY KEY,
+    date TIMESTAMP,
+    montant DECIMAL(10,2),
+    type VARCHAR(20),
+    lieu VARCHAR(100),
+    idcarte INT,
+    FOREIGN KEY (idcarte) REFERENCES carte(id)
+);
+
+CREATE TABLE IF NOT EXISTS alertefraude (
+    id SERIAL PRIMARY KEY,
+    description VARCHAR(255),
+    niveau VARCHAR(20),
+    idcarte INT,
+    FOREIGN KEY (idcarte) REFERENCES carte(id)
+);
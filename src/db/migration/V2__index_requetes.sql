@@ -0,0 +1,32 @@
+-- Secondary indexes matching the filter + sort of each DAO query.
+-- tools.QueryPlanCheck verifies on a large seeded dataset that these queries do not fall back to a seq scan.
+
+-- OperationDAO.findByCarteId / forEachByCarteId / streamByCarteId / findPageByCarteId:
+--   WHERE idcarte = ? ORDER BY date DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_operationcarte_idcarte_date ON operationcarte (idcarte, date DESC, id DESC);
+
+-- OperationDAO.findByType: WHERE type = ? ORDER BY date DESC
+CREATE INDEX IF NOT EXISTS idx_operationcarte_type_date ON operationcarte (type, date DESC, id DESC);
+
+-- OperationDAO.findPage / forEach / streamAll: ORDER BY date DESC, id DESC with keyset (date, id) < (?, ?)
+CREATE INDEX IF NOT EXISTS idx_operationcarte_date ON operationcarte (date DESC, id DESC);
+
+-- CarteDAO.findByClientId and the client-scoped OperationDAO joins (carte.idclient = ?)
+CREATE INDEX IF NOT EXISTS idx_carte_idclient ON carte (idclient);
+
+-- CarteDAO.findByStatut
+CREATE INDEX IF NOT EXISTS idx_carte_statut ON carte (statut);
+
+-- AlerteDAO.findByCarteId: WHERE idcarte = ? ORDER BY id DESC
+CREATE INDEX IF NOT EXISTS idx_alertefraude_idcarte ON alertefraude (idcarte, id DESC);
+
+-- AlerteDAO.findByNiveau: WHERE niveau = ? ORDER BY id DESC
+CREATE INDEX IF NOT EXISTS idx_alertefraude_niveau ON alertefraude (niveau, id DESC);
+
+-- ClientDAO.findByEmail / findByEmailAndPassword
+CREATE INDEX IF NOT EXISTS idx_client_email ON client (email);
+
+ANALYZE client;
+ANALYZE carte;
+ANALYZE operationcarte;
+ANALYZE alertefraude;
@@ -0,0 +1,64 @@
+-- Monthly range partitioning of operationcarte on date.
+-- Partitions are named operationcarte_pYYYYMM; rows outside every partition land in operationcarte_defaut.
+-- PartitionService pre-creates the coming months at startup and detaches or drops expired ones.
+
+ALTER TABLE operationcarte RENAME TO operationcarte_ancienne;
+
+-- The partition key has to be part of the primary key, and cannot be NULL
+CREATE TABLE operationcarte (
+    id INT NOT NULL DEFAULT nextval('operationcarte_id_seq'),
+    date TIMESTAMP NOT NULL DEFAULT now(),
+    montant DECIMAL(10,2),
+    type VARCHAR(20),
+    lieu VARCHAR(100),
+    idcarte INT,
+    PRIMARY KEY (id, date),
+    FOREIGN KEY (idcarte) REFERENCES carte(id)
+) PARTITION BY RANGE (date);
+
+CREATE TABLE operationcarte_defaut PARTITION OF operationcarte DEFAULT;
+
+-- Creates the partition holding the month of the given day, if missing, and returns its name.
+-- Rows already stored in the default partition for that month are moved into the new partition.
+CREATE OR REPLACE FUNCTION creer_partition_operationcarte(mois DATE) RETURNS TEXT AS $$
+DECLARE
+    debut DATE := date_trunc('month', mois)::date;
+    fin DATE := (date_trunc('month', mois) + INTERVAL '1 month')::date;
+    nom TEXT := 'operationcarte_p' || to_char(date_trunc('month', mois), 'YYYYMM');
+BEGIN
+    IF to_regclass(nom) IS NOT NULL THEN
+        RETURN nom;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE operationcarte INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nom);
+    EXECUTE format('WITH deplacees AS (DELETE FROM operationcarte_defaut WHERE date >= %L AND date < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM deplacees', debut, fin, nom);
+    EXECUTE format('ALTER TABLE operationcarte ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', nom, debut, fin);
+    RETURN nom;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One partition per month already present in the data, plus the current and next three months
+SELECT creer_partition_operationcarte(mois::date)
+FROM generate_series(
+        (SELECT date_trunc('month', min(date)) FROM operationcarte_ancienne),
+        (SELECT date_trunc('month', max(date)) FROM operationcarte_ancienne),
+        INTERVAL '1 month') AS mois;
+
+SELECT creer_partition_operationcarte((date_trunc('month', now()) + n * INTERVAL '1 month')::date)
+FROM generate_series(0, 3) AS n;
+
+INSERT INTO operationcarte (id, date, montant, type, lieu, idcarte)
+SELECT id, COALESCE(date, now()), montant, type, lieu, idcarte
+FROM operationcarte_ancienne;
+
+-- Keep the id sequence when the old table goes away
+ALTER SEQUENCE operationcarte_id_seq OWNED BY operationcarte.id;
+DROP TABLE operationcarte_ancienne;
+
+-- V2 indexes, recreated on the partitioned table (and therefore on every partition)
+CREATE INDEX idx_operationcarte_idcarte_date ON operationcarte (idcarte, date DESC, id DESC);
+CREATE INDEX idx_operationcarte_type_date ON operationcarte (type, date DESC, id DESC);
+CREATE INDEX idx_operationcarte_date ON operationcarte (date DESC, id DESC);
+
+ANALYZE operationcarte;
@@ -0,0 +1,9 @@
+-- Account numbers of issued cards are handed out in blocks: each nextval() reserves
+-- [value, value + INCREMENT) for one node, which then issues those numbers without any round-trip.
+-- 9 digits of account number fit a 16-digit PAN with a 6-digit BIN and the Luhn check digit.
+CREATE SEQUENCE IF NOT EXISTS carte_numero_bloc_seq
+    START WITH 1
+    INCREMENT BY 1000
+    MINVALUE 1
+    MAXVALUE 999999999
+    NO CYCLE;
@@ -0,0 +1,12 @@
+-- Idempotent fraud alerts: an alert raised by a rule is identified by (idcarte, regle, cle), where cle
+-- is the triggering operation ("op:<id>") or the time window ("fenetre:<n>") of the hit.
+-- Repeated hits for the same key update one row (occurrences, dernieredetection) instead of adding rows.
+-- Alerts created without a rule (regle NULL) are never deduplicated, since NULLs do not conflict.
+ALTER TABLE alertefraude
+    ADD COLUMN IF NOT EXISTS regle VARCHAR(40),
+    ADD COLUMN IF NOT EXISTS cle VARCHAR(60),
+    ADD COLUMN IF NOT EXISTS occurrences INT NOT NULL DEFAULT 1,
+    ADD COLUMN IF NOT EXISTS dernieredetection TIMESTAMP NOT NULL DEFAULT now(),
+    ADD COLUMN IF NOT EXISTS idoperation INT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_alertefraude_carte_regle_cle ON alertefraude (idcarte, regle, cle);
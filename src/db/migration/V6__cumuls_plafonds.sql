@@ -0,0 +1,23 @@
+-- Running spending totals per card, used by MoteurPlafonds to enforce limits without summing history.
+-- montantjour covers the day jour, montantmois the month starting on mois; both restart at the next
+-- period. The row is updated by the same statement that inserts an authorized operation.
+CREATE TABLE IF NOT EXISTS cumulcarte (
+    idcarte INT PRIMARY KEY REFERENCES carte(id) ON DELETE CASCADE,
+    jour DATE NOT NULL,
+    montantjour DECIMAL(12,2) NOT NULL DEFAULT 0,
+    mois DATE NOT NULL,
+    montantmois DECIMAL(12,2) NOT NULL DEFAULT 0
+);
+
+-- Seed the current day and month from the existing operations
+INSERT INTO cumulcarte (idcarte, jour, montantjour, mois, montantmois)
+SELECT idcarte,
+       CURRENT_DATE,
+       COALESCE(SUM(montant) FILTER (WHERE date >= CURRENT_DATE), 0),
+       date_trunc('month', CURRENT_DATE)::date,
+       SUM(montant)
+FROM operationcarte
+WHERE date >= date_trunc('month', CURRENT_DATE)
+  AND idcarte IS NOT NULL
+GROUP BY idcarte
+ON CONFLICT (idcarte) DO NOTHING;
@@ -1,4 +1,16 @@
 package entity;
 
-public record AlerteFraude(int id, String description, String niveau, int idCarte) {}
+import java.sql.Timestamp;
 
+/**
+ * regle/cle identify the rule hit for deduplication (null for alerts created by hand);
+ * occurrences counts the hits coalesced into this alert, the last one being at
+ * derniereDetection and triggered by operation idOperation (0 if none).
+ */
+public record AlerteFraude(int id, String description, String niveau, int idCarte,
+                           String regle, String cle, int occurrences, Timestamp derniereDetection, int idOperation) {
+
+    public AlerteFraude(int id, String description, String niveau, int idCarte) {
+        this(id, description, niveau, idCarte, null, null, 1, null, 0);
+    }
+}
@@ -0,0 +1,6 @@
+package entity;
+
+import java.time.LocalDate;
+
+// Spending of a card on the day jour and in the month starting on mois (row of cumulcarte), in cents
+public record CumulCarte(int idCarte, LocalDate jour, long montantJour, LocalDate mois, long montantMois) {}
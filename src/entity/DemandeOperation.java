@@ -0,0 +1,5 @@
+package entity;
+
+// An authorization request submitted to ProcesseurOperations; montant is in cents
+public record DemandeOperation(int idCarte, long montant, String type, String lieu) {
+}
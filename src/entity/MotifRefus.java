@@ -0,0 +1,21 @@
+package entity;
+
+// Why an operation was not authorized
+public enum MotifRefus {
+    CARTE_INCONNUE("Carte inconnue"),
+    CARTE_INACTIVE("Carte non active"),
+    CARTE_EXPIREE("Carte expirée"),
+    PLAFOND_JOURNALIER_DEPASSE("Plafond journalier dépassé"),
+    PLAFOND_MENSUEL_DEPASSE("Plafond mensuel dépassé"),
+    SOLDE_INSUFFISANT("Solde insuffisant");
+
+    private final String libelle;
+
+    MotifRefus(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -1,4 +1,4 @@
 package entity;
 
-public record OperationCarte(int id, java.sql.Timestamp date, double montant, String type, String lieu, int idCarte) {}
-
+// montant is in cents (see util.Montants)
+public record OperationCarte(int id, java.sql.Timestamp date, long montant, String type, String lieu, int idCarte) {}
@@ -0,0 +1,17 @@
+package entity;
+
+import java.util.List;
+
+public record RapportEmission(long cartesRecues, long cartesEmises, List<Echec> echecs, long dureeMs) {
+
+    // ligne is the 0-based position of the card in the input stream
+    public record Echec(long ligne, String motif) {}
+
+    public long cartesRejetees() {
+        return cartesRecues - cartesEmises;
+    }
+
+    public double cartesParSeconde() {
+        return dureeMs == 0 ? cartesEmises : cartesEmises * 1000.0 / dureeMs;
+    }
+}
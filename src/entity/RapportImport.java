@@ -0,0 +1,16 @@
+package entity;
+
+import java.util.Map;
+
+// cartesAuDelaDuPlafond: cards of the file whose day or month total ends above their limit
+public record RapportImport(long lignesLues, long lignesImportees, Map<String, Long> rejetsParMotif,
+                            long cartesAuDelaDuPlafond, long dureeMs) {
+
+    public long lignesRejetees() {
+        return lignesLues - lignesImportees;
+    }
+
+    public double lignesParSeconde() {
+        return dureeMs == 0 ? lignesLues : lignesLues * 1000.0 / dureeMs;
+    }
+}
@@ -0,0 +1,24 @@
+package entity;
+
+import java.util.List;
+
+// idOperation is set when the operation was authorized and saved, motif when it was refused;
+// alertes are the fraud alerts raised by the authorized operation
+public record ResultatAutorisation(int idOperation, MotifRefus motif, String statutCarte, List<AlerteFraude> alertes) {
+
+    public static ResultatAutorisation autorisee(int idOperation) {
+        return new ResultatAutorisation(idOperation, null, "ACTIVE", List.of());
+    }
+
+    public static ResultatAutorisation refusee(MotifRefus motif, String statutCarte) {
+        return new ResultatAutorisation(0, motif, statutCarte, List.of());
+    }
+
+    public ResultatAutorisation avecAlertes(List<AlerteFraude> alertes) {
+        return new ResultatAutorisation(idOperation, motif, statutCarte, List.copyOf(alertes));
+    }
+
+    public boolean estAutorisee() {
+        return motif == null;
+    }
+}
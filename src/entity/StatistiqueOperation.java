@@ -0,0 +1,4 @@
+package entity;
+
+// montantTotal is in cents (see util.Montants)
+public record StatistiqueOperation(String type, long nombre, long montantTotal) {}
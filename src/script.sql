@@ -1,4 +1,8 @@
 -- Clear all tables and reset sequences for PostgreSQL
+-- Indexes and later schema changes live in db/migration and are applied at startup by MigrationRunner;
+-- dropping schema_version makes them run again on the freshly created tables.
+DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS cumulcarte CASCADE;
 DROP TABLE IF EXISTS alertefraude CASCADE;
 DROP TABLE IF EXISTS operationcarte CASCADE;
 DROP TABLE IF EXISTS carte CASCADE;
@@ -2,24 +2,34 @@ package service;
 
 import dao.CarteDAO;
 import entity.*;
+import util.Montants;
 
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 public class CarteService implements BaseService<Carte, Integer> {
     private final CarteDAO carteDAO;
+    private final NumeroCarteService numeroCarteService;
 
     // Status constants
     public static final String STATUS_ACTIVE = "ACTIVE";
     public static final String STATUS_BLOQUEE = "BLOQUEE";
     public static final String STATUS_SUSPENDUE = "SUSPENDUE";
 
+    // Cards per bulk issuance chunk; a chunk is inserted and committed as a whole
+    private static final int TAILLE_LOT_EMISSION = 5000;
+
     // Default values
     private static final BigDecimal DEFAULT_PLAFOND_JOURNALIER = BigDecimal.valueOf(1000.0);
     private static final BigDecimal DEFAULT_PLAFOND_MENSUEL = BigDecimal.valueOf(5000.0);
@@ -28,16 +38,7 @@ public class CarteService implements BaseService<Carte, Integer> {
 
     public CarteService() {
         this.carteDAO = new CarteDAO();
-    }
-
-    // Business logic: Generate unique card number
-    private String genererNumeroUnique() throws SQLException {
-        String numero;
-        Random random = new Random();
-        do {
-            numero = String.valueOf(1000000000000000L + (long)(random.nextDouble() * 8999999999999999L));
-        } while (carteDAO.findByNumero(numero).isPresent());
-        return numero;
+        this.numeroCarteService = NumeroCarteService.getInstance();
     }
 
     // Business logic: Validate card data
@@ -69,16 +70,10 @@ public class CarteService implements BaseService<Carte, Integer> {
 
     // adding
 
-    @Override
-    public void add(Carte carte) throws SQLException {
-        // Business validation
+    // Business validation and defaults shared by add and emettreEnMasse (number excluded)
+    private void preparerCarte(Carte carte) {
         validerCarte(carte);
 
-        // Business logic: Generate unique number if not provided
-        if (carte.getNumero() == null || carte.getNumero().isEmpty()) {
-            carte.setNumero(genererNumeroUnique());
-        }
-
         // Business logic: Set default status if not provided
         if (carte.getStatus() == null || carte.getStatus().isEmpty()) {
             carte.setStatus(STATUS_ACTIVE);
@@ -91,12 +86,128 @@ public class CarteService implements BaseService<Carte, Integer> {
 
         // Business logic: Set default values based on card type
         setDefaultValues(carte);
+    }
+
+    private static boolean sansNumero(Carte carte) {
+        return carte.getNumero() == null || carte.getNumero().isEmpty();
+    }
+
+    @Override
+    public void add(Carte carte) throws SQLException {
+        preparerCarte(carte);
+
+        // Business logic: Issue a number if not provided (unique by construction, no lookup needed)
+        if (sansNumero(carte)) {
+            carte.setNumero(numeroCarteService.prochainNumero(carte.getClass().getSimpleName()));
+        }
 
         // Save to database
         carteDAO.save(carte);
         System.out.println("Carte créée avec succès.");
     }
 
+    /**
+     * Bulk issuance for mass onboarding. Cards are processed in chunks of TAILLE_LOT_EMISSION:
+     * validation and defaults run in parallel, missing numbers are reserved per card type in
+     * one call, and the chunk is inserted with saveAll (ids are set on the cards). If the
+     * chunk insert fails, its cards are retried one by one so that only the faulty rows are
+     * reported. A failing row never aborts the run.
+     */
+    public RapportEmission emettreEnMasse(Stream<? extends Carte> cartes) throws SQLException {
+        long debut = System.currentTimeMillis();
+        List<RapportEmission.Echec> echecs = new ArrayList<>();
+        long recues = 0;
+        long emises = 0;
+
+        Iterator<? extends Carte> iterator = cartes.iterator();
+        List<Carte> lot = new ArrayList<>(TAILLE_LOT_EMISSION);
+        while (iterator.hasNext()) {
+            lot.add(iterator.next());
+            if (lot.size() == TAILLE_LOT_EMISSION || !iterator.hasNext()) {
+                emises += emettreLot(lot, recues, echecs);
+                recues += lot.size();
+                lot.clear();
+            }
+        }
+
+        RapportEmission rapport = new RapportEmission(recues, emises, echecs, System.currentTimeMillis() - debut);
+        System.out.printf("Émission terminée: %d cartes reçues, %d émises, %d rejetées en %.1fs (%.0f cartes/s)%n",
+                rapport.cartesRecues(), rapport.cartesEmises(), rapport.cartesRejetees(),
+                rapport.dureeMs() / 1000.0, rapport.cartesParSeconde());
+        return rapport;
+    }
+
+    // Returns the number of cards saved; premiereLigne is the stream position of lot.get(0)
+    private int emettreLot(List<Carte> lot, long premiereLigne, List<RapportEmission.Echec> echecs) throws SQLException {
+        // Each index is written by a single task, so a plain array is safe here
+        String[] erreurs = new String[lot.size()];
+        IntStream.range(0, lot.size()).parallel().forEach(i -> {
+            try {
+                preparerCarte(lot.get(i));
+            } catch (RuntimeException e) {
+                // Any failure rejects this card only, never the rest of the issuance
+                erreurs[i] = motifRejet(e);
+            }
+        });
+
+        attribuerNumeros(lot, erreurs);
+
+        List<Carte> valides = new ArrayList<>(lot.size());
+        List<Long> lignes = new ArrayList<>(lot.size());
+        for (int i = 0; i < lot.size(); i++) {
+            if (erreurs[i] != null) {
+                echecs.add(new RapportEmission.Echec(premiereLigne + i, erreurs[i]));
+            } else {
+                valides.add(lot.get(i));
+                lignes.add(premiereLigne + i);
+            }
+        }
+
+        try {
+            carteDAO.saveAll(valides);
+            return valides.size();
+        } catch (SQLException e) {
+            // The chunk was rolled back as a whole: find the faulty rows one by one
+            int enregistrees = 0;
+            for (int i = 0; i < valides.size(); i++) {
+                try {
+                    carteDAO.save(valides.get(i));
+                    enregistrees++;
+                } catch (SQLException rowError) {
+                    echecs.add(new RapportEmission.Echec(lignes.get(i), rowError.getMessage()));
+                }
+            }
+            return enregistrees;
+        }
+    }
+
+    // One block reservation per card type instead of one number request per card.
+    // Cards already rejected (erreurs[i] != null) get no number.
+    private void attribuerNumeros(List<Carte> lot, String[] erreurs) throws SQLException {
+        Map<String, List<Integer>> sansNumeroParType = IntStream.range(0, lot.size())
+                .filter(i -> erreurs[i] == null && sansNumero(lot.get(i)))
+                .boxed()
+                .collect(Collectors.groupingBy(i -> lot.get(i).getClass().getSimpleName()));
+
+        for (Map.Entry<String, List<Integer>> entry : sansNumeroParType.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            try {
+                List<String> numeros = numeroCarteService.reserverNumeros(entry.getKey(), indices.size());
+                for (int i = 0; i < numeros.size(); i++) {
+                    lot.get(indices.get(i)).setNumero(numeros.get(i));
+                }
+            } catch (RuntimeException e) {
+                // No BIN configured for this card type, or the number generation failed
+                indices.forEach(i -> erreurs[i] = motifRejet(e));
+            }
+        }
+    }
+
+    // Never null: a null entry in erreurs means the card is valid
+    private static String motifRejet(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
     @Override
     public Carte findById(Integer id) throws SQLException {
         // Business validation
@@ -260,6 +371,21 @@ public class CarteService implements BaseService<Carte, Integer> {
         System.out.println("Carte renouvelée avec succès.");
     }
 
+    // Business logic: Top up a prepaid card; returns the new balance
+    public BigDecimal rechargerCartePrepayee(Integer id, BigDecimal montant) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("Card ID must be positive");
+        }
+        if (montant == null || montant.signum() <= 0) {
+            throw new IllegalArgumentException("Top-up amount must be positive");
+        }
+
+        long solde = carteDAO.crediterSolde(id, Montants.centimes(montant))
+                .orElseThrow(() -> new SQLException("Prepaid card not found with ID: " + id));
+        System.out.println("Carte rechargée avec succès. Nouveau solde: " + Montants.formater(solde) + "€");
+        return Montants.enDecimal(solde);
+    }
+
     public void sayHello() {
         System.out.println("Hello from CarteService");
     }
@@ -0,0 +1,100 @@
+package service;
+
+import entity.OperationCarte;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sliding-window state of one card for MoteurFraude: the operations of the last
+ * fenetreMs milliseconds (at most tailleMax of them), with their running amount and
+ * number of location changes. Adding an operation costs O(1) amortized.
+ * Not thread-safe: MoteurFraude holds verrou() while using the instance.
+ */
+class EtatFraudeCarte {
+    // A lock rather than a monitor: the first use rebuilds the window from the DB while holding it
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final long fenetreMs;
+    private final int tailleMax;
+
+    // Operations in the window, oldest first; changementLieu tells if the lieu differs from the previous operation
+    private record Entree(long instant, long montant, String lieu, boolean changementLieu) {}
+
+    private final Deque<Entree> operations = new ArrayDeque<>();
+    private long sommeFenetre; // cents
+    private int changementsLieu;
+    private boolean initialise;
+
+    EtatFraudeCarte(long fenetreMs, int tailleMax) {
+        this.fenetreMs = fenetreMs;
+        this.tailleMax = tailleMax;
+    }
+
+    ReentrantLock verrou() {
+        return verrou;
+    }
+
+    boolean isInitialise() {
+        return initialise;
+    }
+
+    void marquerInitialise() {
+        this.initialise = true;
+    }
+
+    // Previous operation still inside the window, or null
+    String dernierLieu() {
+        Entree derniere = operations.peekLast();
+        return derniere != null ? derniere.lieu() : null;
+    }
+
+    Long dernierInstant() {
+        Entree derniere = operations.peekLast();
+        return derniere != null ? derniere.instant() : null;
+    }
+
+    void ajouter(OperationCarte operation) {
+        long instant = operation.date().getTime();
+        expirer(instant);
+
+        String precedent = dernierLieu();
+        boolean changement = precedent != null && !precedent.equals(operation.lieu());
+        operations.addLast(new Entree(instant, operation.montant(), operation.lieu(), changement));
+        sommeFenetre += operation.montant();
+        if (changement) {
+            changementsLieu++;
+        }
+
+        while (operations.size() > tailleMax) {
+            retirerPlusAncienne();
+        }
+    }
+
+    int nombreOperations() {
+        return operations.size();
+    }
+
+    long sommeFenetre() {
+        return sommeFenetre;
+    }
+
+    int changementsLieu() {
+        return changementsLieu;
+    }
+
+    // Drops the operations older than the window relative to instant
+    private void expirer(long instant) {
+        while (!operations.isEmpty() && instant - operations.peekFirst().instant() > fenetreMs) {
+            retirerPlusAncienne();
+        }
+    }
+
+    private void retirerPlusAncienne() {
+        Entree retiree = operations.removeFirst();
+        sommeFenetre -= retiree.montant();
+        if (retiree.changementLieu()) {
+            changementsLieu--;
+        }
+    }
+}
@@ -4,93 +4,103 @@ import dao.AlerteDAO;
 import dao.OperationDAO;
 import dao.CarteDAO;
 import entity.AlerteFraude;
-import entity.OperationCarte;
-import entity.Carte;
+import util.AppConfig;
+import util.QueueStats;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class FraudeService {
     private final AlerteDAO alerteDAO;
     private final OperationDAO operationDAO;
     private final CarteDAO carteDAO;
+    private final MoteurFraude moteurFraude;
+    private final PublicateurAlertes publicateurAlertes;
 
     // Alert levels
     public static final String NIVEAU_INFO = "INFO";
     public static final String NIVEAU_AVERTISSEMENT = "AVERTISSEMENT";
     public static final String NIVEAU_CRITIQUE = "CRITIQUE";
 
-    // Fraud detection thresholds
-    private static final double MONTANT_SUSPECT = 1000.0;
-    private static final int OPERATIONS_RAPIDES_LIMITE = 3; // 3 operations in short time
+    // Fraud detection thresholds (also used by MoteurFraude)
+    static final long MONTANT_SUSPECT = 1000_00; // cents
+    static final int OPERATIONS_RAPIDES_LIMITE = 3; // 3 operations in short time
 
     public FraudeService() {
         this.alerteDAO = new AlerteDAO();
         this.operationDAO = new OperationDAO();
         this.carteDAO = new CarteDAO();
+        this.moteurFraude = MoteurFraude.getInstance();
+        this.publicateurAlertes = PublicateurAlertes.getInstance();
     }
 
+    // Replays the card's whole history through the MoteurFraude rules, oldest first. Alerts are
+    // keyed by rule and operation/window, so running it again does not duplicate them.
     public void analyserFraude(int carteId) throws SQLException {
-        List<OperationCarte> operations = operationDAO.findByCarteId(carteId);
+        EtatFraudeCarte etat = moteurFraude.nouvelEtat();
+        List<AlerteFraude> alertes = new ArrayList<>();
 
-        if (operations.isEmpty()) {
-            return;
-        }
+        operationDAO.forEachByCarteRange(carteId, carteId + 1,
+                operation -> alertes.addAll(moteurFraude.appliquerRegles(etat, operation)));
+        creerAlertes(alertes);
+    }
 
-        // Check for high amount operations
-        for (OperationCarte operation : operations) {
-            if (operation.montant() > MONTANT_SUSPECT) {
-                creerAlerte(carteId,
-                    "Montant élevé détecté: " + operation.montant() + "€",
-                    NIVEAU_CRITIQUE);
-            }
-        }
+    // The alert is written asynchronously; a critical alert still suspends the card before returning
+    public void creerAlerte(int carteId, String description, String niveau) throws SQLException {
+        publierAlertes(List.of(new AlerteFraude(0, description, niveau, carteId)));
+        System.out.println("Alerte de fraude créée: " + description);
+    }
 
-        // Check for rapid operations in different locations
-        detecterOperationsRapides(carteId, operations);
+    // Hot-path variant: alerts go to the asynchronous sink, cards with critical alerts are suspended now
+    public void publierAlertes(Collection<AlerteFraude> alertes) throws SQLException {
+        for (AlerteFraude alerte : alertes) {
+            publicateurAlertes.publier(alerte);
+        }
+        suspendreCartesCritiques(alertes);
     }
 
-    private void detecterOperationsRapides(int carteId, List<OperationCarte> operations) throws SQLException {
-        if (operations.size() < 2) return;
+    // Bulk variant of creerAlerte: alerts are upserted in batches, then cards with critical alerts are suspended once
+    public List<Integer> creerAlertes(Collection<AlerteFraude> alertes) throws SQLException {
+        if (alertes == null || alertes.isEmpty()) {
+            return List.of();
+        }
 
-        // Group operations by location and check for rapid changes
-        for (int i = 0; i < operations.size() - 1; i++) {
-            OperationCarte op1 = operations.get(i);
-            OperationCarte op2 = operations.get(i + 1);
+        // Only alerts actually written count: a hit that was already recorded suspends nothing
+        List<AlerteFraude> enregistrees = alerteDAO.upsertAll(alertes);
 
-            // Check if operations are in different locations within short time
-            if (!op1.lieu().equals(op2.lieu())) {
-                long timeDiff = Math.abs(op1.date().getTime() - op2.date().getTime());
-                long minutesDiff = timeDiff / (1000 * 60);
+        suspendreCartesCritiques(enregistrees);
 
-                if (minutesDiff < 30) { // Less than 30 minutes apart
-                    creerAlerte(carteId,
-                        "Opérations rapprochées dans des lieux différents: " +
-                        op1.lieu() + " et " + op2.lieu(),
-                        NIVEAU_AVERTISSEMENT);
-                }
-            }
+        if (!enregistrees.isEmpty()) {
+            System.out.println(enregistrees.size() + " alertes de fraude créées ou mises à jour");
         }
+        return enregistrees.stream().map(AlerteFraude::id).toList();
     }
 
-    public void creerAlerte(int carteId, String description, String niveau) throws SQLException {
-        AlerteFraude alerte = new AlerteFraude(0, description, niveau, carteId);
-        alerteDAO.save(alerte);
+    // One targeted UPDATE for all the cards with a critical alert (no read-then-update)
+    private void suspendreCartesCritiques(Collection<AlerteFraude> alertes) throws SQLException {
+        Set<Integer> cartesCritiques = alertes.stream()
+                .filter(alerte -> NIVEAU_CRITIQUE.equals(alerte.niveau()))
+                .map(AlerteFraude::idCarte)
+                .collect(Collectors.toSet());
 
-        // If critical, auto-suspend the card
-        if (NIVEAU_CRITIQUE.equals(niveau)) {
-            suspendreCarteAutomatiquement(carteId);
+        if (carteDAO.updateStatut(cartesCritiques, CarteService.STATUS_SUSPENDUE) > 0) {
+            System.out.println("Carte automatiquement suspendue pour suspicion de fraude");
         }
-
-        System.out.println("Alerte de fraude créée: " + description);
     }
 
-    private void suspendreCarteAutomatiquement(int carteId) throws SQLException {
-        CarteService carteService = new CarteService();
-        carteService.suspendreCarte(carteId);
-        System.out.println("Carte automatiquement suspendue pour suspicion de fraude");
+    public QueueStats getStatsPublicationAlertes() {
+        return publicateurAlertes.getStats();
     }
 
     public List<AlerteFraude> getAlertesByCard(int carteId) throws SQLException {
@@ -105,11 +115,152 @@ public class FraudeService {
         return alerteDAO.findAll();
     }
 
+    /**
+     * Nightly full scan. operationcarte is read once, card by card and oldest first, through
+     * one cursor per range of card ids; ranges run in parallel on a pool of
+     * fraude.batch.parallelisme threads. Each range replays its cards through the same rules
+     * as MoteurFraude, writes alerts in batches, and cards with critical alerts are
+     * suspended together at the end.
+     */
     public void analyserToutesLesCartes() throws SQLException {
-        List<Carte> cartes = carteDAO.findAll();
-        for (Carte carte : cartes) {
-            analyserFraude(carte.getId());
+        int[] bornes = carteDAO.findIdBounds();
+        if (bornes == null) {
+            System.out.println("Aucune carte à analyser");
+            return;
+        }
+
+        // Each range holds a cursor connection and a second one while writing alerts
+        int parallelisme = Math.max(1, Math.min(AppConfig.getInt("fraude.batch.parallelisme", 4),
+                AppConfig.getInt("db.pool.maxSize", 10) / 2));
+        int cartesParTranche = AppConfig.getInt("fraude.batch.cartesParTranche", 10_000);
+
+        List<int[]> tranches = new ArrayList<>();
+        for (long debut = bornes[0]; debut <= bornes[1]; debut += cartesParTranche) {
+            tranches.add(new int[] {(int) debut, (int) Math.min(debut + cartesParTranche, bornes[1] + 1L)});
+        }
+
+        ProgressionAnalyse progression = new ProgressionAnalyse(tranches.size());
+        Set<Integer> cartesCritiques = ConcurrentHashMap.newKeySet();
+        List<Callable<Void>> taches = tranches.stream()
+                .<Callable<Void>>map(tranche -> () -> {
+                    analyserTranche(tranche[0], tranche[1], cartesCritiques, progression);
+                    return null;
+                })
+                .toList();
+
+        System.out.println("Analyse de fraude: " + tranches.size() + " tranches de " + cartesParTranche
+                + " cartes sur " + parallelisme + " threads");
+
+        SQLException erreur = null;
+        ForkJoinPool pool = new ForkJoinPool(parallelisme);
+        try {
+            for (Future<Void> resultat : pool.invokeAll(taches)) {
+                try {
+                    resultat.get();
+                } catch (ExecutionException e) {
+                    if (erreur == null) {
+                        erreur = e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            erreur = new SQLException("Fraud analysis interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Cards found by the ranges that completed are suspended even if another range failed
+        int suspendues = carteDAO.updateStatut(cartesCritiques, CarteService.STATUS_SUSPENDUE);
+        if (erreur != null) {
+            throw new SQLException("Fraud analysis failed for " + progression.tranchesEnEchec() + " range(s): "
+                    + erreur.getMessage(), erreur);
+        }
+        System.out.printf("Analyse de fraude terminée: %d opérations, %d alertes, %d cartes suspendues en %.1fs%n",
+                progression.operations(), progression.alertes(), suspendues, progression.secondes());
+    }
+
+    private void analyserTranche(int idDebut, int idFin, Set<Integer> cartesCritiques,
+                                 ProgressionAnalyse progression) throws SQLException {
+        int alertesParLot = AppConfig.getInt("fraude.batch.alertesParLot", 1000);
+        List<AlerteFraude> lot = new ArrayList<>();
+        EtatFraudeCarte[] etat = new EtatFraudeCarte[1];
+        int[] carteCourante = {-1};
+        long[] compteurs = new long[2]; // operations, alerts
+
+        try {
+            operationDAO.forEachByCarteRange(idDebut, idFin, operation -> {
+                if (operation.idCarte() != carteCourante[0]) {
+                    carteCourante[0] = operation.idCarte();
+                    etat[0] = moteurFraude.nouvelEtat();
+                }
+
+                lot.addAll(moteurFraude.appliquerRegles(etat[0], operation));
+                compteurs[0]++;
+
+                if (lot.size() >= alertesParLot) {
+                    compteurs[1] += enregistrerLot(lot, cartesCritiques);
+                    lot.clear();
+                }
+            });
+            compteurs[1] += enregistrerLot(lot, cartesCritiques);
+        } catch (SQLException e) {
+            progression.trancheEnEchec();
+            throw e;
+        }
+        progression.trancheTerminee(compteurs[0], compteurs[1]);
+    }
+
+    // Upserts a batch of alerts; only alerts not recorded by a previous run can suspend a card
+    private int enregistrerLot(List<AlerteFraude> lot, Set<Integer> cartesCritiques) throws SQLException {
+        List<AlerteFraude> enregistrees = alerteDAO.upsertAll(lot);
+        for (AlerteFraude alerte : enregistrees) {
+            if (NIVEAU_CRITIQUE.equals(alerte.niveau())) {
+                cartesCritiques.add(alerte.idCarte());
+            }
+        }
+        return enregistrees.size();
+    }
+
+    // Shared by the range tasks; prints one line per completed range
+    private static final class ProgressionAnalyse {
+        private final long debut = System.nanoTime();
+        private final int tranches;
+        private final AtomicInteger terminees = new AtomicInteger();
+        private final AtomicInteger enEchec = new AtomicInteger();
+        private final AtomicLong operations = new AtomicLong();
+        private final AtomicLong alertes = new AtomicLong();
+
+        ProgressionAnalyse(int tranches) {
+            this.tranches = tranches;
+        }
+
+        void trancheTerminee(long operationsTranche, long alertesTranche) {
+            long totalOperations = operations.addAndGet(operationsTranche);
+            alertes.addAndGet(alertesTranche);
+            int faites = terminees.incrementAndGet();
+            System.out.printf("  Tranche %d/%d terminée: %d opérations analysées (%.0f op/s), %d alertes%n",
+                    faites, tranches, totalOperations, totalOperations / Math.max(secondes(), 0.001), alertes.get());
+        }
+
+        void trancheEnEchec() {
+            enEchec.incrementAndGet();
+        }
+
+        int tranchesEnEchec() {
+            return enEchec.get();
+        }
+
+        long operations() {
+            return operations.get();
+        }
+
+        long alertes() {
+            return alertes.get();
+        }
+
+        double secondes() {
+            return (System.nanoTime() - debut) / 1e9;
         }
-        System.out.println("Analyse de fraude terminée pour toutes les cartes");
     }
 }
@@ -0,0 +1,94 @@
+package service;
+
+import dao.OperationImportDAO;
+import entity.RapportImport;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+public class ImportService {
+    private final OperationImportDAO operationImportDAO;
+
+    // Progress is printed every PROGRESSION_LIGNES lines read from the file
+    private static final long PROGRESSION_LIGNES = 100_000;
+
+    public ImportService() {
+        this.operationImportDAO = new OperationImportDAO();
+    }
+
+    public RapportImport importerOperationsCsv(Path fichier) throws SQLException {
+        if (fichier == null || !Files.isReadable(fichier)) {
+            throw new IllegalArgumentException("CSV file is not readable: " + fichier);
+        }
+
+        System.out.println("Import des opérations depuis " + fichier + "...");
+        // The import updates cumulcarte behind the engines: refused while a ProcesseurPartitionne runs
+        RapportImport rapport = ProcesseurPartitionne.sansProcesseur(() -> {
+            try (InputStream in = new ProgressionInputStream(new BufferedInputStream(Files.newInputStream(fichier), 1 << 16))) {
+                RapportImport lu = operationImportDAO.importCsv(in);
+                // The engine reloads the totals it holds
+                MoteurPlafonds.getInstance().oublierTout();
+                return lu;
+            } catch (IOException e) {
+                throw new SQLException("Cannot read CSV file: " + e.getMessage(), e);
+            }
+        });
+
+        System.out.printf("Import terminé: %d lignes lues, %d importées, %d rejetées en %.1fs (%.0f lignes/s)%n",
+                rapport.lignesLues(), rapport.lignesImportees(), rapport.lignesRejetees(),
+                rapport.dureeMs() / 1000.0, rapport.lignesParSeconde());
+        rapport.rejetsParMotif().forEach((motif, nombre) ->
+                System.out.println("  Rejet " + motif + ": " + nombre + " lignes"));
+        if (rapport.cartesAuDelaDuPlafond() > 0) {
+            System.out.println("  Attention: " + rapport.cartesAuDelaDuPlafond()
+                    + " cartes dépassent leur plafond après l'import");
+        }
+
+        return rapport;
+    }
+
+    // Counts lines while COPY consumes the stream and prints throughput at regular intervals
+    private static final class ProgressionInputStream extends FilterInputStream {
+        private final long debut = System.nanoTime();
+        private long lignes;
+        private long prochainPalier = PROGRESSION_LIGNES;
+
+        ProgressionInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == '\n') {
+                compterLigne();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int lus = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + lus; i++) {
+                if (buffer[i] == '\n') {
+                    compterLigne();
+                }
+            }
+            return lus;
+        }
+
+        private void compterLigne() {
+            lignes++;
+            if (lignes >= prochainPalier) {
+                prochainPalier += PROGRESSION_LIGNES;
+                double secondes = (System.nanoTime() - debut) / 1e9;
+                System.out.printf("  %d lignes envoyées (%.0f lignes/s)%n", lignes, lignes / secondes);
+            }
+        }
+    }
+}
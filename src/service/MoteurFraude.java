@@ -0,0 +1,185 @@
+package service;
+
+import dao.OperationDAO;
+import entity.AlerteFraude;
+import entity.OperationCarte;
+import util.AppConfig;
+import util.Montants;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming fraud evaluation: each new operation is checked once against the sliding-window
+ * state of its card (EtatFraudeCarte) instead of re-reading the card's history. The state of
+ * a card is rebuilt from the operations of the last window the first time the card is seen
+ * (cold start, or after its state was evicted). At most maxCartes card states are kept.
+ * Window rules only fire when their threshold is crossed, so one burst raises one alert.
+ */
+public class MoteurFraude {
+    private static final MoteurFraude INSTANCE = new MoteurFraude();
+
+    // Rule names stored with the alerts (alertefraude.regle)
+    public static final String REGLE_MONTANT_ELEVE = "MONTANT_ELEVE";
+    public static final String REGLE_LIEUX_RAPPROCHES = "LIEUX_RAPPROCHES";
+    public static final String REGLE_OPERATIONS_RAPIDES = "OPERATIONS_RAPIDES";
+    public static final String REGLE_MONTANT_CUMULE = "MONTANT_CUMULE";
+    public static final String REGLE_CHANGEMENTS_LIEU = "CHANGEMENTS_LIEU";
+
+    private final OperationDAO operationDAO;
+    private final long fenetreMs;
+    private final int operationsParCarte;
+    private final long montantFenetreMax; // cents
+    private final int changementsLieuMax;
+    private final Map<Integer, EtatFraudeCarte> etats;
+    // Times a card's state was locked by another thread; stays at 0 when each card has a single writer
+    private final LongAdder attentesVerrou = new LongAdder();
+
+    private MoteurFraude() {
+        this(AppConfig.getInt("fraude.cartes.max", 100_000));
+    }
+
+    // Private engine of one ProcesseurPartitionne partition, tracking at most maxCartes cards
+    MoteurFraude(int maxCartes) {
+        this.operationDAO = new OperationDAO();
+        this.fenetreMs = AppConfig.getLong("fraude.fenetre.minutes", 30) * 60_000;
+        this.operationsParCarte = AppConfig.getInt("fraude.fenetre.operationsMax", 50);
+        this.montantFenetreMax = AppConfig.getLong("fraude.fenetre.montantMax", 2000) * 100;
+        this.changementsLieuMax = AppConfig.getInt("fraude.fenetre.changementsLieuMax", 3);
+
+        // Least recently used cards are forgotten first; they are rebuilt from the DB if seen again
+        this.etats = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, EtatFraudeCarte> eldest) {
+                return size() > maxCartes;
+            }
+        };
+    }
+
+    public static MoteurFraude getInstance() {
+        return INSTANCE;
+    }
+
+    // Evaluates an operation that has just been saved (its id is set) and returns the alerts it raises
+    public List<AlerteFraude> evaluer(OperationCarte operation) throws SQLException {
+        EtatFraudeCarte etat = etatPour(operation.idCarte());
+
+        if (!etat.verrou().tryLock()) {
+            attentesVerrou.increment();
+            etat.verrou().lock();
+        }
+        try {
+            if (!etat.isInitialise()) {
+                reconstruire(etat, operation);
+            }
+            return appliquerRegles(etat, operation);
+        } finally {
+            etat.verrou().unlock();
+        }
+    }
+
+    long getAttentesVerrou() {
+        return attentesVerrou.sum();
+    }
+
+    // Fresh state for callers replaying a card's operations themselves (batch analysis)
+    EtatFraudeCarte nouvelEtat() {
+        return new EtatFraudeCarte(fenetreMs, operationsParCarte);
+    }
+
+    // Adds the operation to the state and returns the alerts it raises; operations must come in date order
+    List<AlerteFraude> appliquerRegles(EtatFraudeCarte etat, OperationCarte operation) {
+        String lieuPrecedent = etat.dernierLieu();
+        Long instantPrecedent = etat.dernierInstant();
+        int nombreAvant = etat.nombreOperations();
+        long sommeAvant = etat.sommeFenetre();
+        int changementsAvant = etat.changementsLieu();
+
+        etat.ajouter(operation);
+
+        List<AlerteFraude> alertes = new ArrayList<>();
+        long minutes = fenetreMs / 60_000;
+        // Deduplication keys: the operation itself, or the window it falls in
+        String cleOperation = "op:" + operation.id();
+        String cleFenetre = "fenetre:" + operation.date().getTime() / fenetreMs;
+
+        if (operation.montant() > FraudeService.MONTANT_SUSPECT) {
+            alertes.add(alerte(operation, REGLE_MONTANT_ELEVE, cleOperation,
+                    "Montant élevé détecté: " + Montants.formater(operation.montant()) + "€", FraudeService.NIVEAU_CRITIQUE));
+        }
+
+        if (lieuPrecedent != null && !lieuPrecedent.equals(operation.lieu())
+                && operation.date().getTime() - instantPrecedent < fenetreMs) {
+            alertes.add(alerte(operation, REGLE_LIEUX_RAPPROCHES, cleFenetre, "Opérations rapprochées dans des lieux différents: "
+                    + lieuPrecedent + " et " + operation.lieu(), FraudeService.NIVEAU_AVERTISSEMENT));
+        }
+
+        if (franchi(nombreAvant, etat.nombreOperations(), FraudeService.OPERATIONS_RAPIDES_LIMITE)) {
+            alertes.add(alerte(operation, REGLE_OPERATIONS_RAPIDES, cleFenetre,
+                    etat.nombreOperations() + " opérations en moins de " + minutes + " minutes",
+                    FraudeService.NIVEAU_AVERTISSEMENT));
+        }
+
+        if (sommeAvant <= montantFenetreMax && etat.sommeFenetre() > montantFenetreMax) {
+            alertes.add(alerte(operation, REGLE_MONTANT_CUMULE, cleFenetre,
+                    "Montant cumulé de " + Montants.formater(etat.sommeFenetre()) + "€ en moins de " + minutes + " minutes",
+                    FraudeService.NIVEAU_AVERTISSEMENT));
+        }
+
+        if (franchi(changementsAvant, etat.changementsLieu(), changementsLieuMax)) {
+            alertes.add(alerte(operation, REGLE_CHANGEMENTS_LIEU, cleFenetre,
+                    etat.changementsLieu() + " changements de lieu en moins de " + minutes + " minutes",
+                    FraudeService.NIVEAU_CRITIQUE));
+        }
+        return alertes;
+    }
+
+    private static AlerteFraude alerte(OperationCarte operation, String regle, String cle,
+                                       String description, String niveau) {
+        return new AlerteFraude(0, description, niveau, operation.idCarte(), regle, cle, 1,
+                operation.date(), operation.id());
+    }
+
+    // Forgets the state of a card, e.g. after its operations were changed outside the engine
+    public void oublier(int carteId) {
+        synchronized (etats) {
+            etats.remove(carteId);
+        }
+    }
+
+    // Forgets every card, e.g. after a ProcesseurPartitionne processed operations with its own engines
+    public void oublierTout() {
+        synchronized (etats) {
+            etats.clear();
+        }
+    }
+
+    private EtatFraudeCarte etatPour(int carteId) {
+        synchronized (etats) {
+            return etats.computeIfAbsent(carteId, id -> nouvelEtat());
+        }
+    }
+
+    // Replays the card's operations of the last window, oldest first, without raising alerts
+    private void reconstruire(EtatFraudeCarte etat, OperationCarte nouvelle) throws SQLException {
+        Timestamp depuis = new Timestamp(nouvelle.date().getTime() - fenetreMs);
+        List<OperationCarte> recentes = operationDAO.findByCarteIdSince(nouvelle.idCarte(), depuis);
+
+        for (int i = recentes.size() - 1; i >= 0; i--) {
+            OperationCarte operation = recentes.get(i);
+            if (operation.id() != nouvelle.id()) {
+                etat.ajouter(operation);
+            }
+        }
+        etat.marquerInitialise();
+    }
+
+    private static boolean franchi(int avant, int apres, int seuil) {
+        return avant < seuil && apres >= seuil;
+    }
+}
@@ -0,0 +1,226 @@
+package service;
+
+import dao.CumulCarteDAO;
+import entity.*;
+import util.AppConfig;
+import util.Montants;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spending-limit enforcement with running totals per card:
+ * - CarteDebit: the day's spending may not exceed plafondJournalier,
+ * - CarteCredit: the month's spending may not exceed plafondMensuel,
+ * - CartePrepayee: an operation may not exceed soldeDisponible (a pre-check only: the balance is
+ *   debited atomically by OperationDAO.autoriser, which has the final word).
+ * Totals live in memory and start from cumulcarte the first time a card is seen; they restart
+ * by themselves at a new day or month. A check reserves the amount under the card's lock stripe,
+ * so concurrent operations on one card cannot both pass; the reservation is cancelled if the
+ * operation is not recorded. Bulk recordings (OperationService.enregistrerOperations) reserve
+ * their totals through reserverLot. The persisted totals are updated with the operations
+ * themselves: by OperationDAO.autoriser, OperationDAO.saveAll and the CSV import.
+ * Totals are per process: several application nodes must not authorize on the same cards, and
+ * operations recorded by another process (e.g. a CSV import run apart) are only seen once the
+ * card is reloaded. An import run by this process calls oublierTout().
+ * At most plafonds.cartes.max cards are kept in memory; the least recently used ones are
+ * dropped and reloaded from cumulcarte when seen again.
+ */
+public class MoteurPlafonds {
+    private static final MoteurPlafonds INSTANCE = new MoteurPlafonds();
+
+    private final CumulCarteDAO cumulCarteDAO;
+    // ReentrantLock rather than synchronized: a cold load does I/O under the lock, which would
+    // pin the carrier thread of a virtual thread (ProcesseurOperations)
+    private final ReentrantLock[] verrous;
+    // Guarded by synchronized (cumuls); a Cumul itself is guarded by its card's lock stripe
+    private final Map<Integer, Cumul> cumuls;
+    // Times a stripe was held by another thread; stays at 0 when each card has a single writer
+    private final LongAdder attentesVerrou = new LongAdder();
+
+    // Mutable running totals of one card, guarded by the card's lock stripe
+    private static final class Cumul {
+        LocalDate jour;
+        long montantJour; // cents
+        LocalDate mois;
+        long montantMois;
+
+        Cumul(LocalDate jour, long montantJour, LocalDate mois, long montantMois) {
+            this.jour = jour;
+            this.montantJour = montantJour;
+            this.mois = mois;
+            this.montantMois = montantMois;
+        }
+
+        // Restarts the counters whose period is over
+        void basculer(LocalDate aujourdhui) {
+            if (!aujourdhui.equals(jour)) {
+                jour = aujourdhui;
+                montantJour = 0;
+            }
+            LocalDate moisCourant = aujourdhui.withDayOfMonth(1);
+            if (!moisCourant.equals(mois)) {
+                mois = moisCourant;
+                montantMois = 0;
+            }
+        }
+    }
+
+    private MoteurPlafonds() {
+        this(AppConfig.getInt("plafonds.verrous", 256), AppConfig.getInt("plafonds.cartes.max", 100_000));
+    }
+
+    // Private engine of one ProcesseurPartitionne partition: a single thread uses it, one stripe is enough
+    MoteurPlafonds(int nombreVerrous, int maxCartes) {
+        this.cumulCarteDAO = new CumulCarteDAO();
+        // Least recently used cards are forgotten first. A card dropped while one of its
+        // reservations is pending reloads without it until the operation is recorded; with
+        // access order this needs maxCartes other cards to be used in the meantime.
+        this.cumuls = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Cumul> eldest) {
+                return size() > maxCartes;
+            }
+        };
+        // Power of two, so the stripe is a mask of the card id
+        int nombre = Integer.highestOneBit(Math.max(1, nombreVerrous));
+        this.verrous = new ReentrantLock[nombre];
+        for (int i = 0; i < nombre; i++) {
+            verrous[i] = new ReentrantLock();
+        }
+    }
+
+    public static MoteurPlafonds getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checks the operation against the card's limit and, if it fits, adds it to the running
+     * totals; montant is in cents. Returns null when accepted, otherwise the reason of the refusal.
+     */
+    public MotifRefus reserver(Carte carte, long montant, LocalDate jour) throws SQLException {
+        ReentrantLock verrou = verrouiller(carte.getId());
+        try {
+            Cumul cumul = cumulPour(carte.getId(), jour);
+
+            MotifRefus motif = switch (carte) {
+                case CarteDebit debit -> cumul.montantJour + montant > Montants.centimes(debit.getPlafondJournalier())
+                        ? MotifRefus.PLAFOND_JOURNALIER_DEPASSE : null;
+                case CarteCredit credit -> cumul.montantMois + montant > Montants.centimes(credit.getPlafondMensuel())
+                        ? MotifRefus.PLAFOND_MENSUEL_DEPASSE : null;
+                case CartePrepayee prepayee -> montant > Montants.centimes(prepayee.getSoldeDisponible())
+                        ? MotifRefus.SOLDE_INSUFFISANT : null;
+                default -> null;
+            };
+
+            if (motif == null) {
+                cumul.montantJour += montant;
+                cumul.montantMois += montant;
+            }
+            return motif;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Bulk variant: montantJour is the total of the card's operations dated today and
+     * montantMois the total of those dated this month (cents), checked and reserved together.
+     * Prepaid cards are not checked here; the bulk recording debits their balance itself.
+     */
+    public MotifRefus reserverLot(Carte carte, long montantJour, long montantMois, LocalDate jour) throws SQLException {
+        ReentrantLock verrou = verrouiller(carte.getId());
+        try {
+            Cumul cumul = cumulPour(carte.getId(), jour);
+
+            MotifRefus motif = switch (carte) {
+                case CarteDebit debit -> cumul.montantJour + montantJour > Montants.centimes(debit.getPlafondJournalier())
+                        ? MotifRefus.PLAFOND_JOURNALIER_DEPASSE : null;
+                case CarteCredit credit -> cumul.montantMois + montantMois > Montants.centimes(credit.getPlafondMensuel())
+                        ? MotifRefus.PLAFOND_MENSUEL_DEPASSE : null;
+                default -> null;
+            };
+
+            if (motif == null) {
+                cumul.montantJour += montantJour;
+                cumul.montantMois += montantMois;
+            }
+            return motif;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Gives back a reservation whose operation was finally not recorded
+    public void annuler(int carteId, long montant, LocalDate jour) {
+        annulerLot(carteId, montant, montant, jour);
+    }
+
+    // Gives back a reserverLot reservation (or the part of it that was not recorded)
+    public void annulerLot(int carteId, long montantJour, long montantMois, LocalDate jour) {
+        ReentrantLock verrou = verrouiller(carteId);
+        try {
+            Cumul cumul = cumulEnMemoire(carteId);
+            if (cumul == null) {
+                return;
+            }
+            if (jour.equals(cumul.jour)) {
+                cumul.montantJour -= montantJour;
+            }
+            if (jour.withDayOfMonth(1).equals(cumul.mois)) {
+                cumul.montantMois -= montantMois;
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Drops every in-memory total, e.g. after a CSV import; cards are reloaded from cumulcarte
+    public void oublierTout() {
+        synchronized (cumuls) {
+            cumuls.clear();
+        }
+    }
+
+    long getAttentesVerrou() {
+        return attentesVerrou.sum();
+    }
+
+    // Locks the card's stripe, counting the acquisitions that had to wait
+    private ReentrantLock verrouiller(int carteId) {
+        ReentrantLock verrou = verrous[carteId & (verrous.length - 1)];
+        if (!verrou.tryLock()) {
+            attentesVerrou.increment();
+            verrou.lock();
+        }
+        return verrou;
+    }
+
+    // Called under the card's stripe: the first access loads the persisted totals
+    private Cumul cumulPour(int carteId, LocalDate jour) throws SQLException {
+        Cumul cumul = cumulEnMemoire(carteId);
+        if (cumul == null) {
+            // Loaded outside the map lock: only this card's stripe waits for the query
+            Optional<CumulCarte> persiste = cumulCarteDAO.findByCarteId(carteId);
+            cumul = persiste
+                    .map(c -> new Cumul(c.jour(), c.montantJour(), c.mois(), c.montantMois()))
+                    .orElseGet(() -> new Cumul(jour, 0, jour.withDayOfMonth(1), 0));
+            synchronized (cumuls) {
+                cumuls.put(carteId, cumul);
+            }
+        }
+        cumul.basculer(jour);
+        return cumul;
+    }
+
+    private Cumul cumulEnMemoire(int carteId) {
+        synchronized (cumuls) {
+            return cumuls.get(carteId);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import dao.NumeroCarteDAO;
+import util.AppConfig;
+import util.Luhn;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Issues card numbers: BIN of the card type + account number + Luhn check digit.
+ * Account numbers come from blocks reserved through carte_numero_bloc_seq, so numbers
+ * are unique by construction across all nodes and most issuances need no round-trip.
+ * Numbers left in a block when the application stops are simply never used.
+ */
+public class NumeroCarteService {
+    private static final NumeroCarteService INSTANCE = new NumeroCarteService();
+
+    public static final int LONGUEUR_NUMERO = 16;
+    // carte_numero_bloc_seq goes up to 999999999 (V4): 16 digits = BIN + 9 account digits + check digit
+    public static final int LONGUEUR_BIN = 6;
+
+    private final NumeroCarteDAO numeroCarteDAO;
+    // Reserved blocks not used yet, as [next account number, end of block)
+    private final Deque<long[]> blocs = new ArrayDeque<>();
+    private int tailleBloc;
+
+    private NumeroCarteService() {
+        this.numeroCarteDAO = new NumeroCarteDAO();
+    }
+
+    public static NumeroCarteService getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized String prochainNumero(String typeCarte) throws SQLException {
+        return reserverNumeros(typeCarte, 1).get(0);
+    }
+
+    // Numbers for a bulk issuance: all the missing blocks are reserved in a single query
+    public synchronized List<String> reserverNumeros(String typeCarte, int nombre) throws SQLException {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("Number of card numbers must be positive");
+        }
+        String bin = binPour(typeCarte);
+
+        long disponibles = blocs.stream().mapToLong(bloc -> bloc[1] - bloc[0]).sum();
+        if (disponibles < nombre) {
+            int taille = getTailleBloc();
+            int manquants = (int) ((nombre - disponibles + taille - 1) / taille);
+            for (long debut : numeroCarteDAO.reserverBlocs(manquants)) {
+                blocs.addLast(new long[] {debut, debut + taille});
+            }
+        }
+
+        List<String> numeros = new ArrayList<>(nombre);
+        while (numeros.size() < nombre) {
+            long[] bloc = blocs.peekFirst();
+            numeros.add(composer(bin, bloc[0]++));
+            if (bloc[0] == bloc[1]) {
+                blocs.removeFirst();
+            }
+        }
+        return numeros;
+    }
+
+    private int getTailleBloc() throws SQLException {
+        if (tailleBloc == 0) {
+            tailleBloc = numeroCarteDAO.tailleBloc();
+        }
+        return tailleBloc;
+    }
+
+    // BIN per card type, e.g. carte.bin.CarteDebit=453201. A longer BIN would leave fewer account
+    // digits than the sequence can produce, and issuance would fail once the numbers grow.
+    private String binPour(String typeCarte) {
+        String bin = AppConfig.getString("carte.bin." + typeCarte, null);
+        if (bin == null || !bin.matches("\\d{" + LONGUEUR_BIN + "}")) {
+            throw new IllegalArgumentException("No valid " + LONGUEUR_BIN + "-digit BIN configured for card type " + typeCarte);
+        }
+        return bin;
+    }
+
+    private String composer(String bin, long numeroCompte) {
+        int chiffresCompte = LONGUEUR_NUMERO - 1 - bin.length();
+        String compte = String.format("%0" + chiffresCompte + "d", numeroCompte);
+        if (compte.length() > chiffresCompte) {
+            throw new IllegalStateException("Account number " + numeroCompte + " does not fit after BIN " + bin);
+        }
+        String sansControle = bin + compte;
+        return sansControle + Luhn.chiffreControle(sansControle);
+    }
+}
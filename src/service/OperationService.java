@@ -1,19 +1,38 @@
 package service;
 
+import dao.BulkInsertException;
 import dao.OperationDAO;
 import dao.CarteDAO;
+import entity.AlerteFraude;
+import entity.MotifRefus;
 import entity.OperationCarte;
+import entity.ResultatAutorisation;
 import entity.Carte;
+import entity.CartePrepayee;
+import entity.DemandeOperation;
+import util.Montants;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class OperationService {
     private final OperationDAO operationDAO;
     private final CarteDAO carteDAO;
+    private final FraudeService fraudeService;
+    private final MoteurFraude moteurFraude;
+    private final MoteurPlafonds moteurPlafonds;
+    // False for the partitions of ProcesseurPartitionne, whose engines are their own
+    private final boolean moteursPartages;
 
     // Operation types constants
     public static final String TYPE_ACHAT = "ACHAT";
@@ -21,40 +40,238 @@ public class OperationService {
     public static final String TYPE_PAIEMENT_ENLIGNE = "PAIEMENTENLIGNE";
 
     public OperationService() {
+        this(MoteurFraude.getInstance(), MoteurPlafonds.getInstance(), true);
+    }
+
+    // Used by ProcesseurPartitionne: each partition has its own engines for the cards it owns
+    OperationService(MoteurFraude moteurFraude, MoteurPlafonds moteurPlafonds) {
+        this(moteurFraude, moteurPlafonds, false);
+    }
+
+    private OperationService(MoteurFraude moteurFraude, MoteurPlafonds moteurPlafonds, boolean moteursPartages) {
         this.operationDAO = new OperationDAO();
         this.carteDAO = new CarteDAO();
+        this.fraudeService = new FraudeService();
+        this.moteurFraude = moteurFraude;
+        this.moteurPlafonds = moteurPlafonds;
+        this.moteursPartages = moteursPartages;
     }
 
-    public void enregistrerOperation(int carteId, double montant, String type, String lieu) throws SQLException {
-        // Verify card exists and is active
-        Optional<Carte> carteOpt = carteDAO.findById(carteId);
-        if (carteOpt.isEmpty()) {
-            throw new SQLException("Carte not found with ID: " + carteId);
+    // Amounts are in cents throughout (see util.Montants)
+    public void enregistrerOperation(int carteId, long montant, String type, String lieu) throws SQLException {
+        ResultatAutorisation resultat = autoriserOperation(carteId, montant, type, lieu);
+        if (!resultat.estAutorisee()) {
+            throw new SQLException("Operation refused for card " + carteId + ": " + resultat.motif());
         }
+    }
 
-        Carte carte = carteOpt.get();
-        if (!"ACTIVE".equals(carte.getStatus())) {
-            throw new SQLException("Cannot perform operation on inactive card");
+    // Console variant of traiterOperation: the outcome and the fraud alerts are printed
+    public ResultatAutorisation autoriserOperation(int carteId, long montant, String type, String lieu) throws SQLException {
+        ResultatAutorisation resultat = traiterOperation(carteId, montant, type, lieu);
+        if (!resultat.estAutorisee()) {
+            System.out.println("Opération refusée: " + resultat.motif().getLibelle());
+            return resultat;
         }
-
-        // Create operation
-        OperationCarte operation = new OperationCarte(
-                0, // ID will be auto-generated
-                Timestamp.valueOf(LocalDateTime.now()),
-                montant,
-                type,
-                lieu,
-                carteId
-        );
-
-        operationDAO.save(operation);
         System.out.println("Operation enregistrée avec succès");
+        resultat.alertes().forEach(alerte -> System.out.println("Alerte de fraude: " + alerte.description()));
+        return resultat;
+    }
+
+    // Limit check in memory, then card check and insert in one round-trip; a refusal is returned
+    // with its reason rather than thrown. Prints nothing: this is the path of ProcesseurOperations.
+    public ResultatAutorisation traiterOperation(int carteId, long montant, String type, String lieu) throws SQLException {
+        // A negative amount would credit a prepaid card and lower the limit totals
+        validerMontant(montant);
+        if (!moteursPartages) {
+            return traiter(carteId, montant, type, lieu);
+        }
+        // While a ProcesseurPartitionne runs, the card belongs to one of its partitions
+        return ProcesseurPartitionne.autoriser(new DemandeOperation(carteId, montant, type, lieu),
+                () -> traiter(carteId, montant, type, lieu));
+    }
+
+    private ResultatAutorisation traiter(int carteId, long montant, String type, String lieu) throws SQLException {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Timestamp date = Timestamp.valueOf(maintenant);
+
+        // Unknown cards go straight to autoriser, which reports them
+        Optional<Carte> carte = carteDAO.findById(carteId);
+        if (carte.isPresent()) {
+            MotifRefus depassement = moteurPlafonds.reserver(carte.get(), montant, maintenant.toLocalDate());
+            if (depassement != null) {
+                return ResultatAutorisation.refusee(depassement, carte.get().getStatus());
+            }
+        }
+
+        ResultatAutorisation resultat;
+        try {
+            resultat = operationDAO.autoriser(new OperationCarte(0, date, montant, type, lieu, carteId));
+        } catch (SQLException e) {
+            moteurPlafonds.annuler(carteId, montant, maintenant.toLocalDate());
+            throw e;
+        }
+        if (!resultat.estAutorisee()) {
+            moteurPlafonds.annuler(carteId, montant, maintenant.toLocalDate());
+            return resultat;
+        }
+
+        // Only the new operation is evaluated, against the card's in-memory window
+        OperationCarte operation = new OperationCarte(resultat.idOperation(), date, montant, type, lieu, carteId);
+        List<AlerteFraude> alertes = moteurFraude.evaluer(operation);
+        if (alertes.isEmpty()) {
+            return resultat;
+        }
+        fraudeService.publierAlertes(alertes);
+        return resultat.avecAlertes(alertes);
+    }
+
+    // Bulk recording: every referenced card is checked once (status, limits, prepaid balance),
+    // then rows are inserted in batches; a card over its limit refuses the whole batch
+    public List<Integer> enregistrerOperations(Collection<OperationCarte> operations) throws SQLException {
+        if (operations == null || operations.isEmpty()) {
+            return List.of();
+        }
+        if (!moteursPartages) {
+            return enregistrer(operations);
+        }
+        // The batch cannot be split across partitions: it is refused while a ProcesseurPartitionne runs
+        return ProcesseurPartitionne.sansProcesseur(() -> enregistrer(operations));
+    }
+
+    private List<Integer> enregistrer(Collection<OperationCarte> operations) throws SQLException {
+
+        operations.forEach(operation -> validerMontant(operation.montant()));
+
+        Set<Integer> carteIds = operations.stream()
+                .map(OperationCarte::idCarte)
+                .collect(Collectors.toSet());
+
+        Map<Integer, Carte> cartes = carteDAO.findByIds(carteIds);
+        for (Integer carteId : carteIds) {
+            Carte carte = cartes.get(carteId);
+            if (carte == null) {
+                throw new SQLException("Carte not found with ID: " + carteId);
+            }
+            if (!"ACTIVE".equals(carte.getStatus())) {
+                throw new SQLException("Cannot perform operation on inactive card: " + carteId);
+            }
+        }
+
+        // The operations of today and of this month are reserved against the card limits, and prepaid
+        // cards are debited with the total of their operations, before the rows are inserted.
+        // On any failure, the operations that were not committed are given back: saveAll commits
+        // by chunks, so the rows of earlier chunks stay, stay paid and stay in the totals.
+        List<OperationCarte> lignes = List.copyOf(operations);
+        LocalDate jour = LocalDate.now();
+        Set<Integer> reservees = new HashSet<>();
+        Map<Integer, Long> debits = totauxPrepayes(lignes, cartes);
+        Set<Integer> debitees = new HashSet<>();
+        int lignesValidees = 0;
+        boolean reussi = false;
+        try {
+            for (Map.Entry<Integer, long[]> total : totauxPlafonds(lignes, jour).entrySet()) {
+                MotifRefus depassement = moteurPlafonds.reserverLot(
+                        cartes.get(total.getKey()), total.getValue()[0], total.getValue()[1], jour);
+                if (depassement != null) {
+                    throw new SQLException("Operations refused for card " + total.getKey() + ": " + depassement);
+                }
+                reservees.add(total.getKey());
+            }
+
+            for (Map.Entry<Integer, Long> debit : debits.entrySet()) {
+                if (carteDAO.debiterSolde(debit.getKey(), debit.getValue()).isEmpty()) {
+                    throw new SQLException("Insufficient balance on prepaid card: " + debit.getKey());
+                }
+                debitees.add(debit.getKey());
+            }
+
+            List<Integer> ids;
+            try {
+                ids = operationDAO.saveAll(lignes);
+            } catch (BulkInsertException e) {
+                lignesValidees = e.getCommittedRows();
+                throw e;
+            }
+            reussi = true;
+            System.out.println(ids.size() + " opérations enregistrées avec succès");
+            return ids;
+        } finally {
+            if (!reussi) {
+                List<OperationCarte> nonValidees = lignes.subList(lignesValidees, lignes.size());
+                totauxPlafonds(nonValidees, jour).forEach((carteId, total) -> {
+                    if (reservees.contains(carteId)) {
+                        moteurPlafonds.annulerLot(carteId, total[0], total[1], jour);
+                    }
+                });
+                rembourser(totauxPrepayes(nonValidees, cartes), debitees);
+            }
+        }
+    }
+
+    private static void validerMontant(long montant) {
+        if (montant <= 0) {
+            throw new IllegalArgumentException("Operation amount must be positive: " + montant);
+        }
+    }
+
+    // [today, this month] totals per card (cents), as counted by the limits; older and undated
+    // operations count for no period that the limits check
+    private static Map<Integer, long[]> totauxPlafonds(List<OperationCarte> operations, LocalDate jour) {
+        LocalDate mois = jour.withDayOfMonth(1);
+        Map<Integer, long[]> totaux = new HashMap<>();
+        for (OperationCarte operation : operations) {
+            if (operation.date() == null) {
+                continue;
+            }
+            LocalDate date = operation.date().toLocalDateTime().toLocalDate();
+            if (date.isBefore(mois) || date.isAfter(jour)) {
+                continue;
+            }
+            long[] total = totaux.computeIfAbsent(operation.idCarte(), id -> new long[2]);
+            if (date.equals(jour)) {
+                total[0] += operation.montant();
+            }
+            total[1] += operation.montant();
+        }
+        return totaux;
+    }
+
+    // Total amount per prepaid card (cents)
+    private static Map<Integer, Long> totauxPrepayes(List<OperationCarte> operations, Map<Integer, Carte> cartes) {
+        return operations.stream()
+                .filter(operation -> cartes.get(operation.idCarte()) instanceof CartePrepayee)
+                .collect(Collectors.groupingBy(OperationCarte::idCarte, Collectors.summingLong(OperationCarte::montant)));
+    }
+
+    // Runs while an exception is propagating: a failed credit is reported, never thrown over it
+    private void rembourser(Map<Integer, Long> montants, Set<Integer> debitees) {
+        for (Map.Entry<Integer, Long> montant : montants.entrySet()) {
+            if (!debitees.contains(montant.getKey()) || montant.getValue() <= 0) {
+                continue;
+            }
+            try {
+                carteDAO.crediterSolde(montant.getKey(), montant.getValue());
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Remboursement de " + Montants.formater(montant.getValue())
+                        + "€ impossible sur la carte " + montant.getKey() + ": " + e.getMessage());
+            }
+        }
     }
 
     public List<OperationCarte> getOperationsByCard(int carteId) throws SQLException {
         return operationDAO.findByCarteId(carteId);
     }
 
+    public List<OperationCarte> getOperationsByClient(int clientId) throws SQLException {
+        return operationDAO.findByClientId(clientId);
+    }
+
+    // Only the partitions covering the last jours days are read
+    public List<OperationCarte> getOperationsRecentesByClient(int clientId, int jours) throws SQLException {
+        Timestamp depuis = Timestamp.valueOf(LocalDateTime.now().minusDays(jours));
+        return operationDAO.findByClientIdSince(clientId, depuis);
+    }
+
     public List<OperationCarte> getOperationsByType(String type) throws SQLException {
         return operationDAO.findByType(type);
     }
@@ -63,15 +280,15 @@ public class OperationService {
         return operationDAO.findAll();
     }
 
-    public void effectuerAchat(int carteId, double montant, String lieu) throws SQLException {
+    public void effectuerAchat(int carteId, long montant, String lieu) throws SQLException {
         enregistrerOperation(carteId, montant, TYPE_ACHAT, lieu);
     }
 
-    public void effectuerRetrait(int carteId, double montant, String lieu) throws SQLException {
+    public void effectuerRetrait(int carteId, long montant, String lieu) throws SQLException {
         enregistrerOperation(carteId, montant, TYPE_RETRAIT, lieu);
     }
 
-    public void effectuerPaiementEnLigne(int carteId, double montant, String lieu) throws SQLException {
+    public void effectuerPaiementEnLigne(int carteId, long montant, String lieu) throws SQLException {
         enregistrerOperation(carteId, montant, TYPE_PAIEMENT_ENLIGNE, lieu);
     }
 }
@@ -0,0 +1,66 @@
+package service;
+
+import dao.OperationPartitionDAO;
+import util.AppConfig;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Maintenance of the monthly operationcarte partitions: the current month and the next
+ * MOIS_AVANCE months always exist, and partitions older than the retention period are
+ * detached (kept as standalone tables for archiving) or dropped.
+ */
+public class PartitionService {
+    private final OperationPartitionDAO partitionDAO;
+
+    public static final String ACTION_DETACHER = "DETACHER";
+    public static final String ACTION_SUPPRIMER = "SUPPRIMER";
+
+    private final int moisAvance;
+    private final int retentionMois;
+    private final String actionRetention;
+
+    public PartitionService() {
+        this.partitionDAO = new OperationPartitionDAO();
+        this.moisAvance = AppConfig.getInt("operations.partitions.moisAvance", 3);
+        // 0 keeps every partition
+        this.retentionMois = AppConfig.getInt("operations.retention.mois", 0);
+        this.actionRetention = AppConfig.getString("operations.retention.action", ACTION_DETACHER).toUpperCase();
+
+        if (!ACTION_DETACHER.equals(actionRetention) && !ACTION_SUPPRIMER.equals(actionRetention)) {
+            throw new IllegalArgumentException("operations.retention.action must be DETACHER or SUPPRIMER: " + actionRetention);
+        }
+    }
+
+    public void maintenir() throws SQLException {
+        YearMonth moisCourant = YearMonth.now();
+
+        for (int i = 0; i <= moisAvance; i++) {
+            partitionDAO.creerPartition(moisCourant.plusMonths(i));
+        }
+
+        if (retentionMois > 0) {
+            YearMonth premierMoisConserve = moisCourant.minusMonths(retentionMois);
+            SortedMap<YearMonth, String> expirees = partitionDAO.findPartitions().headMap(premierMoisConserve);
+
+            for (Map.Entry<YearMonth, String> partition : expirees.entrySet()) {
+                if (ACTION_SUPPRIMER.equals(actionRetention)) {
+                    partitionDAO.supprimerPartition(partition.getValue());
+                    System.out.println("Partition " + partition.getValue() + " supprimée (mois " + partition.getKey() + ")");
+                } else {
+                    partitionDAO.detacherPartition(partition.getValue());
+                    System.out.println("Partition " + partition.getValue() + " détachée (mois " + partition.getKey() + ")");
+                }
+            }
+        }
+
+        long horsPartition = partitionDAO.countDefaut();
+        if (horsPartition > 0) {
+            System.out.println("Attention: " + horsPartition
+                    + " opérations sont dans la partition par défaut (dates hors des partitions mensuelles)");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package service;
+
+import entity.DemandeOperation;
+import entity.ResultatAutorisation;
+import util.AppConfig;
+import util.ProcessorStats;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent entry point for authorization requests. Any number of producer threads may call
+ * soumettre(); each request runs on its own virtual thread through
+ * OperationService.traiterOperation, and the returned future completes with the
+ * ResultatAutorisation (or exceptionally with the SQLException). Thousands of requests can be in
+ * flight: waiting ones are parked virtual threads, and a semaphore lets at most
+ * operations.processeur.concurrence of them use the database at the same time, so they queue
+ * here instead of timing out in the connection pool.
+ * close() stops accepting requests and waits for those in flight.
+ */
+public class ProcesseurOperations implements AutoCloseable {
+    private final OperationService operationService;
+    private final ExecutorService executor;
+    private final Semaphore permis;
+    private final int nombrePermis;
+    private volatile boolean ferme;
+
+    // Counters, read by getStats()
+    private final LongAdder soumises = new LongAdder();
+    private final LongAdder autorisees = new LongAdder();
+    private final LongAdder refusees = new LongAdder();
+    private final LongAdder echouees = new LongAdder();
+    private final LongAdder latenceTotaleNanos = new LongAdder();
+    private final AtomicLong latenceMaxNanos = new AtomicLong();
+    private final AtomicInteger enCours = new AtomicInteger();
+    private final AtomicInteger enCoursMax = new AtomicInteger();
+
+    public ProcesseurOperations() {
+        this(new OperationService());
+    }
+
+    public ProcesseurOperations(OperationService operationService) {
+        this.operationService = operationService;
+        // One connection is left to the alert writer thread (PublicateurAlertes)
+        int defaut = Math.max(1, AppConfig.getInt("db.pool.maxSize", 10) - 1);
+        this.nombrePermis = Math.max(1, AppConfig.getInt("operations.processeur.concurrence", defaut));
+        this.permis = new Semaphore(nombrePermis, true);
+        this.executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("operation-", 0).factory());
+    }
+
+    public CompletableFuture<ResultatAutorisation> soumettre(DemandeOperation demande) {
+        if (ferme) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Operation processor is closed"));
+        }
+
+        soumises.increment();
+        long debut = System.nanoTime();
+        enCoursMax.accumulateAndGet(enCours.incrementAndGet(), Math::max);
+
+        try {
+            return CompletableFuture.supplyAsync(() -> traiter(demande, debut), executor);
+        } catch (RejectedExecutionException e) {
+            // close() ran between the check and the submission
+            terminer(debut);
+            echouees.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Submits all the requests, then waits for them; results are in the order of the requests
+    public List<ResultatAutorisation> traiterTous(Collection<DemandeOperation> demandes) throws SQLException {
+        List<CompletableFuture<ResultatAutorisation>> futurs = new ArrayList<>(demandes.size());
+        for (DemandeOperation demande : demandes) {
+            futurs.add(soumettre(demande));
+        }
+
+        List<ResultatAutorisation> resultats = new ArrayList<>(futurs.size());
+        SQLException erreur = null;
+        for (CompletableFuture<ResultatAutorisation> futur : futurs) {
+            try {
+                resultats.add(futur.join());
+            } catch (CompletionException e) {
+                resultats.add(null);
+                if (erreur == null) {
+                    erreur = e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+                }
+            }
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+        return resultats;
+    }
+
+    private ResultatAutorisation traiter(DemandeOperation demande, long debut) {
+        try {
+            permis.acquire();
+            try {
+                ResultatAutorisation resultat = operationService.traiterOperation(
+                        demande.idCarte(), demande.montant(), demande.type(), demande.lieu());
+                (resultat.estAutorisee() ? autorisees : refusees).increment();
+                return resultat;
+            } finally {
+                permis.release();
+            }
+        } catch (SQLException e) {
+            echouees.increment();
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            echouees.increment();
+            throw new CompletionException(new SQLException("Operation processing interrupted", e));
+        } catch (RuntimeException e) {
+            echouees.increment();
+            throw e;
+        } finally {
+            terminer(debut);
+        }
+    }
+
+    private void terminer(long debut) {
+        enCours.decrementAndGet();
+        long latence = System.nanoTime() - debut;
+        latenceTotaleNanos.add(latence);
+        latenceMaxNanos.accumulateAndGet(latence, Math::max);
+    }
+
+    public ProcessorStats getStats() {
+        long terminees = autorisees.sum() + refusees.sum() + echouees.sum();
+        return new ProcessorStats(
+                soumises.sum(),
+                enCours.get(),
+                enCoursMax.get(),
+                nombrePermis,
+                permis.getQueueLength(),
+                autorisees.sum(),
+                refusees.sum(),
+                echouees.sum(),
+                terminees == 0 ? 0.0 : latenceTotaleNanos.sum() / 1_000_000.0 / terminees,
+                latenceMaxNanos.get() / 1_000_000.0);
+    }
+
+    // Waits for the requests already submitted; later submissions fail
+    @Override
+    public void close() {
+        ferme = true;
+        executor.close();
+    }
+}
@@ -0,0 +1,309 @@
+package service;
+
+import entity.DemandeOperation;
+import entity.ResultatAutorisation;
+import util.AppConfig;
+import util.ShardStats;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Single-writer execution of authorization requests. Cards are split between
+ * operations.processeur.partitions partitions by card id (these are in-memory partitions of the
+ * cards, unrelated to the operationcarte table partitions). Each partition is one thread reading
+ * a bounded queue; it owns its own MoteurPlafonds and MoteurFraude, so the running totals and
+ * fraud windows of a card are only ever touched by that thread, and the operations of a card
+ * are processed strictly in submission order. Partitions share nothing but the connection pool,
+ * so throughput grows with the number of partitions up to the pool size.
+ *
+ * The partitions' engines are separate from the MoteurPlafonds/MoteurFraude singletons used by
+ * OperationService, so only one processor may run at a time and, while it runs, it owns every
+ * card: OperationService routes its authorizations to the owning partition and waits for them,
+ * and refuses bulk recordings. On close() the singletons forget their in-memory state, which
+ * the partitions have made stale. Futures are completed on the partition thread; callers chaining work should use
+ * the async variants of CompletableFuture so they do not hold up the partition.
+ * When a queue stays full for attenteMaxMs the request is rejected.
+ */
+public final class ProcesseurPartitionne implements AutoCloseable {
+
+    // Held shared by OperationService while it works with the shared engines, and exclusively
+    // while a processor starts or stops, so that the two never overlap on a card
+    private static final ReentrantReadWriteLock VERROU_MOTEURS_PARTAGES = new ReentrantReadWriteLock(true);
+    // Guarded by VERROU_MOTEURS_PARTAGES
+    private static ProcesseurPartitionne enCours;
+
+    @FunctionalInterface
+    interface Traitement<T> {
+        T executer() throws SQLException;
+    }
+
+    private record Tache(DemandeOperation demande, CompletableFuture<ResultatAutorisation> resultat, long soumiseA) {}
+
+    private final Partition[] partitions;
+    private final int capacite;
+    private final long attenteMaxMs;
+    private volatile boolean actif = true;
+
+    // Counters, read by getStats()
+    private final LongAdder soumises = new LongAdder();
+    private final LongAdder rejetees = new LongAdder();
+    private final LongAdder autorisees = new LongAdder();
+    private final LongAdder refusees = new LongAdder();
+    private final LongAdder echouees = new LongAdder();
+    private final LongAdder latenceTotaleNanos = new LongAdder();
+    private final AtomicLong latenceMaxNanos = new AtomicLong();
+    private final AtomicInteger profondeurMax = new AtomicInteger();
+
+    public ProcesseurPartitionne() {
+        // One connection is left to the alert writer thread (PublicateurAlertes)
+        int defaut = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                AppConfig.getInt("db.pool.maxSize", 10) - 1));
+        int nombre = Math.max(1, AppConfig.getInt("operations.processeur.partitions", defaut));
+        this.capacite = AppConfig.getInt("operations.processeur.fileCapacite", 10_000);
+        this.attenteMaxMs = AppConfig.getLong("operations.processeur.attenteMaxMs", 100);
+
+        // The card states are split between the partitions like the cards themselves
+        int etatsParPartition = Math.max(1, AppConfig.getInt("fraude.cartes.max", 100_000) / nombre);
+        int cumulsParPartition = Math.max(1, AppConfig.getInt("plafonds.cartes.max", 100_000) / nombre);
+        this.partitions = new Partition[nombre];
+
+        Lock verrou = VERROU_MOTEURS_PARTAGES.writeLock();
+        verrou.lock();
+        try {
+            if (enCours != null) {
+                throw new IllegalStateException("A ProcesseurPartitionne is already running");
+            }
+            for (int i = 0; i < nombre; i++) {
+                partitions[i] = new Partition(i, new MoteurFraude(etatsParPartition),
+                        new MoteurPlafonds(1, cumulsParPartition));
+            }
+            enCours = this;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Runs an authorization with the shared engines, unless a processor is running: the request
+     * then goes to the partition that owns the card, and the caller waits for its result.
+     */
+    static ResultatAutorisation autoriser(DemandeOperation demande, Traitement<ResultatAutorisation> local)
+            throws SQLException {
+        ProcesseurPartitionne processeur;
+        Lock verrou = VERROU_MOTEURS_PARTAGES.readLock();
+        verrou.lock();
+        try {
+            processeur = enCours;
+            if (processeur == null) {
+                return local.executer();
+            }
+        } finally {
+            verrou.unlock();
+        }
+        return processeur.attendre(processeur.soumettre(demande));
+    }
+
+    // Runs work on the shared engines that cannot be routed to a partition (bulk recording)
+    static <T> T sansProcesseur(Traitement<T> local) throws SQLException {
+        Lock verrou = VERROU_MOTEURS_PARTAGES.readLock();
+        verrou.lock();
+        try {
+            if (enCours != null) {
+                throw new IllegalStateException("Cards are owned by the running ProcesseurPartitionne");
+            }
+            return local.executer();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private ResultatAutorisation attendre(CompletableFuture<ResultatAutorisation> resultat) throws SQLException {
+        try {
+            return resultat.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<ResultatAutorisation> soumettre(DemandeOperation demande) {
+        if (!actif) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Operation processor is closed"));
+        }
+
+        Partition partition = partitions[Math.floorMod(demande.idCarte(), partitions.length)];
+        Tache tache = new Tache(demande, new CompletableFuture<>(), System.nanoTime());
+        soumises.increment();
+
+        try {
+            if (partition.file.offer(tache) || partition.file.offer(tache, attenteMaxMs, TimeUnit.MILLISECONDS)) {
+                profondeurMax.accumulateAndGet(partition.file.size(), Math::max);
+                // close() may have run between the check above and the offer, and the partition
+                // thread may already be gone: take the request back unless it was picked up
+                if (!actif && partition.file.remove(tache)) {
+                    rejetees.increment();
+                    tache.resultat().completeExceptionally(new RejectedExecutionException("Operation processor is closed"));
+                }
+                return tache.resultat();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejetees.increment();
+        return CompletableFuture.failedFuture(new RejectedExecutionException(
+                "Queue of partition " + partition.numero + " is full (" + capacite + " requests)"));
+    }
+
+    public ShardStats getStats() {
+        int enFile = 0;
+        long attentesVerrou = 0;
+        for (Partition partition : partitions) {
+            enFile += partition.file.size();
+            attentesVerrou += partition.moteurFraude.getAttentesVerrou() + partition.moteurPlafonds.getAttentesVerrou();
+        }
+        long terminees = autorisees.sum() + refusees.sum() + echouees.sum();
+        return new ShardStats(
+                partitions.length,
+                capacite,
+                enFile,
+                profondeurMax.get(),
+                soumises.sum(),
+                rejetees.sum(),
+                autorisees.sum(),
+                refusees.sum(),
+                echouees.sum(),
+                terminees == 0 ? 0.0 : latenceTotaleNanos.sum() / 1_000_000.0 / terminees,
+                latenceMaxNanos.get() / 1_000_000.0,
+                attentesVerrou);
+    }
+
+    // Processes what is still queued, then stops the partition threads. Requests left behind
+    // (if the wait is interrupted) are failed, so that no caller waits forever.
+    @Override
+    public void close() {
+        actif = false;
+        boolean interrompu = false;
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join();
+            } catch (InterruptedException e) {
+                interrompu = true;
+                break;
+            }
+        }
+
+        List<Tache> restantes = new ArrayList<>();
+        for (Partition partition : partitions) {
+            partition.file.drainTo(restantes);
+        }
+        for (Tache tache : restantes) {
+            rejetees.increment();
+            tache.resultat().completeExceptionally(new RejectedExecutionException("Operation processor is closed"));
+        }
+
+        // With the queues empty, each thread only finishes its current request: the shared
+        // engines must not take over the cards before that
+        if (interrompu) {
+            for (Partition partition : partitions) {
+                while (partition.thread.isAlive()) {
+                    try {
+                        partition.thread.join();
+                    } catch (InterruptedException e) {
+                        // Restored below
+                    }
+                }
+            }
+            Thread.currentThread().interrupt();
+        }
+        liberer();
+    }
+
+    // Hands the cards back to the shared engines, whose in-memory state missed this processor's operations
+    private void liberer() {
+        Lock verrou = VERROU_MOTEURS_PARTAGES.writeLock();
+        verrou.lock();
+        try {
+            if (enCours == this) {
+                enCours = null;
+                MoteurPlafonds.getInstance().oublierTout();
+                MoteurFraude.getInstance().oublierTout();
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private final class Partition {
+        private final int numero;
+        private final MoteurFraude moteurFraude;
+        private final MoteurPlafonds moteurPlafonds;
+        private final OperationService operationService;
+        private final BlockingQueue<Tache> file;
+        private final Thread thread;
+
+        Partition(int numero, MoteurFraude moteurFraude, MoteurPlafonds moteurPlafonds) {
+            this.numero = numero;
+            this.moteurFraude = moteurFraude;
+            this.moteurPlafonds = moteurPlafonds;
+            this.operationService = new OperationService(moteurFraude, moteurPlafonds);
+            this.file = new ArrayBlockingQueue<>(capacite);
+            this.thread = new Thread(this::boucle, "operations-partition-" + numero);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void boucle() {
+            while (actif || !file.isEmpty()) {
+                try {
+                    Tache tache = file.poll(100, TimeUnit.MILLISECONDS);
+                    if (tache != null) {
+                        executer(tache);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void executer(Tache tache) {
+            DemandeOperation demande = tache.demande();
+            try {
+                ResultatAutorisation resultat = operationService.traiterOperation(
+                        demande.idCarte(), demande.montant(), demande.type(), demande.lieu());
+                (resultat.estAutorisee() ? autorisees : refusees).increment();
+                compterLatence(tache);
+                tache.resultat().complete(resultat);
+            } catch (SQLException | RuntimeException e) {
+                // One failing request must not stop the partition
+                echouees.increment();
+                compterLatence(tache);
+                tache.resultat().completeExceptionally(e);
+            }
+        }
+
+        private void compterLatence(Tache tache) {
+            long latence = System.nanoTime() - tache.soumiseA();
+            latenceTotaleNanos.add(latence);
+            latenceMaxNanos.accumulateAndGet(latence, Math::max);
+        }
+    }
+}
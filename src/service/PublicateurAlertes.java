@@ -0,0 +1,227 @@
+package service;
+
+import dao.AlerteDAO;
+import entity.AlerteFraude;
+import util.AppConfig;
+import util.QueueStats;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous alert sink: alerts are put on a bounded in-process queue and written in
+ * batches (AlerteDAO.upsertAll) by a background thread, off the operation hot path.
+ * When the queue is full the publisher waits up to attenteMaxMs; after that a non-critical
+ * alert is dropped (and counted), while a critical alert is written synchronously.
+ * A batch that cannot be written is retried once; if it fails again, its critical alerts are
+ * written one by one and only the others are dropped.
+ * arreter() flushes the queue and must be called before the connection pool is shut down.
+ */
+public class PublicateurAlertes {
+    private static final PublicateurAlertes INSTANCE = new PublicateurAlertes();
+
+    private record Entree(AlerteFraude alerte, long publieeA) {}
+
+    private final AlerteDAO alerteDAO;
+    private final BlockingQueue<Entree> file;
+    private final int capacite;
+    private final int tailleLot;
+    private final long attenteMaxMs;
+
+    private Thread ecrivain;
+    private volatile boolean actif;
+
+    // Counters: written by the writer thread or under synchronized, read by getStats()
+    private long publiees;
+    private long ecrites;
+    private long perdues;
+    private long attentes;
+    private long echecsEcriture;
+    private long lots;
+    // Only alerts that went through the queue have a latency (not those written synchronously)
+    private long echantillonsLatence;
+    private long latenceTotaleNanos;
+    private long latenceMaxNanos;
+
+    private PublicateurAlertes() {
+        this.alerteDAO = new AlerteDAO();
+        this.capacite = AppConfig.getInt("alertes.file.capacite", 10_000);
+        this.tailleLot = AppConfig.getInt("alertes.file.tailleLot", 500);
+        this.attenteMaxMs = AppConfig.getLong("alertes.file.attenteMaxMs", 100);
+        this.file = new ArrayBlockingQueue<>(capacite);
+    }
+
+    public static PublicateurAlertes getInstance() {
+        return INSTANCE;
+    }
+
+    public void publier(AlerteFraude alerte) throws SQLException {
+        demarrerSiNecessaire();
+        Entree entree = new Entree(alerte, System.nanoTime());
+
+        if (file.offer(entree)) {
+            compterPubliee();
+            return;
+        }
+
+        compterAttente();
+        try {
+            if (file.offer(entree, attenteMaxMs, TimeUnit.MILLISECONDS)) {
+                compterPubliee();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (FraudeService.NIVEAU_CRITIQUE.equals(alerte.niveau())) {
+            // Never lose a critical alert: write it on the caller's thread
+            alerteDAO.upsertAll(List.of(alerte));
+            synchronized (this) {
+                publiees++;
+                ecrites++;
+            }
+        } else {
+            synchronized (this) {
+                perdues++;
+            }
+            System.err.println("File d'alertes pleine, alerte perdue: " + alerte.description());
+        }
+    }
+
+    public synchronized QueueStats getStats() {
+        double moyenneMs = echantillonsLatence == 0 ? 0.0 : latenceTotaleNanos / 1e6 / echantillonsLatence;
+        return new QueueStats(file.size(), capacite, publiees, ecrites, perdues, attentes, echecsEcriture,
+                lots, moyenneMs, latenceMaxNanos / 1e6);
+    }
+
+    // Writes what is still queued, then stops the writer thread
+    public void arreter() {
+        Thread thread;
+        synchronized (this) {
+            thread = ecrivain;
+            actif = false;
+            ecrivain = null;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void demarrerSiNecessaire() {
+        if (ecrivain != null) {
+            return;
+        }
+        actif = true;
+        ecrivain = new Thread(this::boucleEcriture, "alertes-writer");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    private void boucleEcriture() {
+        List<Entree> lot = new ArrayList<>(tailleLot);
+
+        while (actif || !file.isEmpty()) {
+            try {
+                Entree premiere = file.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                file.drainTo(lot, tailleLot - 1);
+                ecrire(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    private void ecrire(List<Entree> lot) {
+        List<AlerteFraude> alertes = lot.stream().map(Entree::alerte).toList();
+        try {
+            upsertAvecNouvelEssai(alertes);
+        } catch (SQLException e) {
+            System.err.println("Écriture de " + lot.size() + " alertes impossible: " + e.getMessage());
+            ecrireCritiques(lot);
+            return;
+        }
+
+        synchronized (this) {
+            lots++;
+        }
+        compterEcrites(lot);
+    }
+
+    // Replaying a batch is safe: alerts raised by the fraud engine carry a rule and a key, and
+    // AlerteDAO.upsertAll leaves a row unchanged when the same hit is written again
+    private void upsertAvecNouvelEssai(List<AlerteFraude> alertes) throws SQLException {
+        try {
+            alerteDAO.upsertAll(alertes);
+        } catch (SQLException premierEchec) {
+            try {
+                alerteDAO.upsertAll(alertes);
+            } catch (SQLException e) {
+                e.addSuppressed(premierEchec);
+                throw e;
+            }
+        }
+    }
+
+    // Last resort for a batch that failed twice: critical alerts are written one by one, so that
+    // a single faulty row cannot take them down; the other alerts of the batch are dropped
+    private void ecrireCritiques(List<Entree> lot) {
+        List<Entree> critiquesEcrites = new ArrayList<>();
+        long echecs = 0;
+        for (Entree entree : lot) {
+            if (!FraudeService.NIVEAU_CRITIQUE.equals(entree.alerte().niveau())) {
+                echecs++;
+                continue;
+            }
+            try {
+                alerteDAO.upsertAll(List.of(entree.alerte()));
+                critiquesEcrites.add(entree);
+            } catch (SQLException e) {
+                echecs++;
+                System.err.println("Alerte critique perdue: " + entree.alerte().description() + " (" + e.getMessage() + ")");
+            }
+        }
+
+        synchronized (this) {
+            echecsEcriture += echecs;
+        }
+        compterEcrites(critiquesEcrites);
+    }
+
+    private void compterEcrites(List<Entree> entrees) {
+        long maintenant = System.nanoTime();
+        synchronized (this) {
+            ecrites += entrees.size();
+            echantillonsLatence += entrees.size();
+            for (Entree entree : entrees) {
+                long latence = maintenant - entree.publieeA();
+                latenceTotaleNanos += latence;
+                latenceMaxNanos = Math.max(latenceMaxNanos, latence);
+            }
+        }
+    }
+
+    private synchronized void compterPubliee() {
+        publiees++;
+    }
+
+    private synchronized void compterAttente() {
+        attentes++;
+    }
+}
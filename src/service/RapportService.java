@@ -3,11 +3,13 @@ package service;
 import dao.CarteDAO;
 import dao.OperationDAO;
 import entity.Carte;
-import entity.OperationCarte;
+import entity.StatistiqueOperation;
+import util.Montants;
 
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class RapportService {
@@ -22,49 +24,20 @@ public class RapportService {
     public void afficherTop5CartesUtilisees() throws SQLException {
         System.out.println("\n=== TOP 5 DES CARTES LES PLUS UTILISÉES ===");
 
-        List<OperationCarte> operations = operationDAO.findAll();
-        Map<Integer, Long> cartesUtilisation = operations.stream()
-                .collect(Collectors.groupingBy(
-                    OperationCarte::idCarte,
-                    Collectors.counting()
-                ));
+        Map<Integer, Long> cartesUtilisation = operationDAO.findTopCartesByCount(5);
+        // One query for all ranked cards instead of one findById per entry
+        Map<Integer, Carte> cartes = carteDAO.findByIds(cartesUtilisation.keySet());
 
-        cartesUtilisation.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
-                .limit(5)
-                .forEach(entry -> {
-                    try {
-                        Carte carte = carteDAO.findById(entry.getKey()).orElse(null);
-                        String numeroMasque = carte != null ?
-                            carte.getNumero().substring(0, 4) + "****" +
-                            carte.getNumero().substring(carte.getNumero().length() - 4) :
-                            "Unknown";
-                        System.out.println("Carte " + numeroMasque + ": " + entry.getValue() + " opérations");
-                    } catch (SQLException e) {
-                        System.out.println("Carte ID " + entry.getKey() + ": " + entry.getValue() + " opérations");
-                    }
-                });
+        cartesUtilisation.forEach((carteId, nombre) ->
+            System.out.println("Carte " + masquerNumero(cartes.get(carteId)) + ": " + nombre + " opérations"));
     }
 
     public void afficherStatistiquesParType() throws SQLException {
         System.out.println("\n=== STATISTIQUES DES OPÉRATIONS PAR TYPE ===");
 
-        List<OperationCarte> operations = operationDAO.findAll();
-        Map<String, Double> montantsParType = operations.stream()
-                .collect(Collectors.groupingBy(
-                    OperationCarte::type,
-                    Collectors.summingDouble(OperationCarte::montant)
-                ));
-
-        Map<String, Long> nombreParType = operations.stream()
-                .collect(Collectors.groupingBy(
-                    OperationCarte::type,
-                    Collectors.counting()
-                ));
-
-        for (String type : montantsParType.keySet()) {
-            System.out.printf("%s: %d opérations, Montant total: %.2f€%n",
-                    type, nombreParType.get(type), montantsParType.get(type));
+        for (StatistiqueOperation statistique : operationDAO.countAndSumByType()) {
+            System.out.printf("%s: %d opérations, Montant total: %s€%n",
+                    statistique.type(), statistique.nombre(), Montants.formater(statistique.montantTotal()));
         }
     }
 
@@ -95,27 +68,24 @@ public class RapportService {
         System.out.println("=".repeat(50));
 
         // Total cards by type
-        List<Carte> toutesCartes = carteDAO.findAll();
-        Map<String, Long> cartesParType = toutesCartes.stream()
-                .collect(Collectors.groupingBy(
-                    carte -> carte.getClass().getSimpleName(),
-                    Collectors.counting()
-                ));
+        Map<String, Long> cartesParType = carteDAO.countByType();
 
         System.out.println("\n=== RÉPARTITION DES CARTES PAR TYPE ===");
         cartesParType.forEach((type, count) ->
             System.out.println(type + ": " + count + " cartes"));
 
+        System.out.println("\n=== RÉPARTITION DES CARTES PAR STATUT ===");
+        carteDAO.countByStatut().forEach((statut, count) ->
+            System.out.println(statut + ": " + count + " cartes"));
+
         // Total operations and amount
-        List<OperationCarte> operations = operationDAO.findAll();
-        double montantTotal = operations.stream()
-                .mapToDouble(OperationCarte::montant)
-                .sum();
+        StatistiqueOperation totaux = operationDAO.countAndSum();
+        long nombreCartes = cartesParType.values().stream().mapToLong(Long::longValue).sum();
 
         System.out.println("\n=== STATISTIQUES GLOBALES ===");
-        System.out.println("Nombre total d'opérations: " + operations.size());
-        System.out.printf("Montant total des opérations: %.2f€%n", montantTotal);
-        System.out.println("Nombre total de cartes: " + toutesCartes.size());
+        System.out.println("Nombre total d'opérations: " + totaux.nombre());
+        System.out.println("Montant total des opérations: " + Montants.formater(totaux.montantTotal()) + "€");
+        System.out.println("Nombre total de cartes: " + nombreCartes);
 
         // Call other report methods
         afficherTop5CartesUtilisees();
@@ -126,65 +96,34 @@ public class RapportService {
     public void afficherMesCartesUtilisation(int clientId) throws SQLException {
         System.out.println("\n=== UTILISATION DE MES CARTES ===");
 
-        List<Carte> mesCartes = carteDAO.findByClientId(clientId);
-        List<OperationCarte> operations = operationDAO.findAll();
+        // The client's cards are already loaded here, so no per-entry card lookup is needed
+        Map<Integer, Carte> mesCartes = carteDAO.findByClientId(clientId).stream()
+                .collect(Collectors.toMap(Carte::getId, Function.identity()));
 
-        Map<Integer, Long> utilisationMesCartes = operations.stream()
-                .filter(op -> mesCartes.stream().anyMatch(carte -> carte.getId() == op.idCarte()))
-                .collect(Collectors.groupingBy(
-                    OperationCarte::idCarte,
-                    Collectors.counting()
-                ));
+        Map<Integer, Long> utilisationMesCartes = operationDAO.countByCarteForClient(clientId);
 
         if (utilisationMesCartes.isEmpty()) {
             System.out.println("Aucune opération trouvée pour vos cartes.");
             return;
         }
 
-        utilisationMesCartes.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
-                .forEach(entry -> {
-                    try {
-                        Carte carte = carteDAO.findById(entry.getKey()).orElse(null);
-                        String numeroMasque = carte != null ?
-                            carte.getNumero().substring(0, 4) + "****" +
-                            carte.getNumero().substring(carte.getNumero().length() - 4) :
-                            "Unknown";
-                        System.out.println("Carte " + numeroMasque + ": " + entry.getValue() + " opérations");
-                    } catch (SQLException e) {
-                        System.out.println("Carte ID " + entry.getKey() + ": " + entry.getValue() + " opérations");
-                    }
-                });
+        utilisationMesCartes.forEach((carteId, nombre) ->
+            System.out.println("Carte " + masquerNumero(mesCartes.get(carteId)) + ": " + nombre + " opérations"));
     }
 
     public void afficherMesStatistiquesParType(int clientId) throws SQLException {
         System.out.println("\n=== MES STATISTIQUES PAR TYPE D'OPÉRATION ===");
 
-        List<Carte> mesCartes = carteDAO.findByClientId(clientId);
-        List<OperationCarte> mesOperations = operationDAO.findAll().stream()
-                .filter(op -> mesCartes.stream().anyMatch(carte -> carte.getId() == op.idCarte()))
-                .collect(Collectors.toList());
+        List<StatistiqueOperation> statistiquesParType = operationDAO.countAndSumByTypeForClient(clientId);
 
-        if (mesOperations.isEmpty()) {
+        if (statistiquesParType.isEmpty()) {
             System.out.println("Aucune opération trouvée pour vos cartes.");
             return;
         }
 
-        Map<String, Double> montantsParType = mesOperations.stream()
-                .collect(Collectors.groupingBy(
-                    OperationCarte::type,
-                    Collectors.summingDouble(OperationCarte::montant)
-                ));
-
-        Map<String, Long> nombreParType = mesOperations.stream()
-                .collect(Collectors.groupingBy(
-                    OperationCarte::type,
-                    Collectors.counting()
-                ));
-
-        for (String type : montantsParType.keySet()) {
-            System.out.printf("%s: %d opérations, Montant total: %.2f€%n",
-                    type, nombreParType.get(type), montantsParType.get(type));
+        for (StatistiqueOperation statistique : statistiquesParType) {
+            System.out.printf("%s: %d opérations, Montant total: %s€%n",
+                    statistique.type(), statistique.nombre(), Montants.formater(statistique.montantTotal()));
         }
     }
 
@@ -198,11 +137,7 @@ public class RapportService {
             return;
         }
 
-        Map<String, Long> cartesParStatut = mesCartes.stream()
-                .collect(Collectors.groupingBy(
-                    Carte::getStatus,
-                    Collectors.counting()
-                ));
+        Map<String, Long> cartesParStatut = compterParStatut(mesCartes);
 
         System.out.println("Répartition de mes cartes par statut:");
         cartesParStatut.forEach((statut, count) ->
@@ -229,28 +164,18 @@ public class RapportService {
             return;
         }
 
-        Map<String, Long> cartesParType = mesCartes.stream()
-                .collect(Collectors.groupingBy(
-                    carte -> carte.getClass().getSimpleName(),
-                    Collectors.counting()
-                ));
+        Map<String, Long> cartesParType = compterParType(mesCartes);
 
         System.out.println("\n=== MES CARTES PAR TYPE ===");
         cartesParType.forEach((type, count) ->
             System.out.println(type + ": " + count + " carte(s)"));
 
         // Mes opérations et montant total
-        List<OperationCarte> mesOperations = operationDAO.findAll().stream()
-                .filter(op -> mesCartes.stream().anyMatch(carte -> carte.getId() == op.idCarte()))
-                .collect(Collectors.toList());
-
-        double monMontantTotal = mesOperations.stream()
-                .mapToDouble(OperationCarte::montant)
-                .sum();
+        StatistiqueOperation mesTotaux = operationDAO.countAndSumForClient(clientId);
 
         System.out.println("\n=== MES STATISTIQUES GLOBALES ===");
-        System.out.println("Nombre de mes opérations: " + mesOperations.size());
-        System.out.printf("Montant total de mes opérations: %.2f€%n", monMontantTotal);
+        System.out.println("Nombre de mes opérations: " + mesTotaux.nombre());
+        System.out.println("Montant total de mes opérations: " + Montants.formater(mesTotaux.montantTotal()) + "€");
         System.out.println("Nombre de mes cartes: " + mesCartes.size());
 
         // Appeler les autres méthodes personnalisées
@@ -258,4 +183,29 @@ public class RapportService {
         afficherMesStatistiquesParType(clientId);
         afficherMesCartesStatut(clientId);
     }
+
+    // In-memory aggregations of the client reports (package-private for the report benchmark)
+    static Map<String, Long> compterParStatut(List<Carte> cartes) {
+        return cartes.stream()
+                .collect(Collectors.groupingBy(
+                    Carte::getStatus,
+                    Collectors.counting()
+                ));
+    }
+
+    static Map<String, Long> compterParType(List<Carte> cartes) {
+        return cartes.stream()
+                .collect(Collectors.groupingBy(
+                    carte -> carte.getClass().getSimpleName(),
+                    Collectors.counting()
+                ));
+    }
+
+    private String masquerNumero(Carte carte) {
+        if (carte == null) {
+            return "Unknown";
+        }
+        String numero = carte.getNumero();
+        return numero.substring(0, 4) + "****" + numero.substring(numero.length() - 4);
+    }
 }
@@ -0,0 +1,447 @@
+package tools;
+
+import dao.AlerteDAO;
+import dao.ClientDAO;
+import dao.CumulCarteDAO;
+import dao.OperationImportDAO;
+import dao.OperationPartitionDAO;
+import entity.*;
+import service.CarteService;
+import service.FraudeService;
+import service.MoteurFraude;
+import util.AppConfig;
+import util.DBUtil;
+import util.MigrationRunner;
+import util.Montants;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills the database with a large synthetic data set (clients, cards, operations, fraud alerts)
+ * for load tests and query plan checks. The distributions aim at realistic data rather than
+ * uniform noise:
+ * - 1 to 5 cards per client (1.5 on average), 60% debit, 25% credit, 15% prepaid, 90% active;
+ * - card activity follows a Zipf law (generateur.zipf): a few cards carry most operations;
+ * - operations follow daily and weekly profiles (quiet nights, busy Saturdays, online
+ *   payments in the evening), with log-normal amounts and withdrawals in round sums;
+ * - 90% of the operations of a card happen in its home city.
+ * Everything goes through the bulk paths: ClientDAO.saveAll, CarteService.emettreEnMasse,
+ * COPY via OperationImportDAO and AlerteDAO.upsertAll. The same seed and end date give the
+ * same rows, except card numbers which come from the database sequences.
+ *
+ * Usage: java tools.GenerateurDonnees [clients] [operations] [graine] [fin (yyyy-MM-dd, exclue)]
+ */
+public class GenerateurDonnees {
+    private static final int CLIENTS_PAR_LOT = 100_000;
+    private static final long OPERATIONS_PAR_IMPORT = 1_000_000;
+    private static final int ALERTES_PAR_LOT = 10_000;
+    private static final int MAX_CARTES_PAR_CLIENT = 5;
+
+    private static final String[] PRENOMS = {
+            "Alice", "Bob", "Carla", "David", "Emma", "Farid", "Gabriel", "Hugo", "Inès", "Jules",
+            "Karim", "Léa", "Manon", "Nathan", "Olivia", "Paul", "Quentin", "Rose", "Sarah", "Thomas",
+            "Ugo", "Victor", "Yasmine", "Zoé", "Louis", "Chloé", "Lucas", "Camille", "Adam", "Jade"};
+    private static final String[] NOMS = {
+            "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit", "Durand", "Leroy", "Moreau",
+            "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David", "Bertrand", "Roux", "Vincent", "Fournier",
+            "Morel", "Girard", "André", "Mercier", "Dupont", "Lambert", "Bonnet", "François", "Martinez", "Legrand"};
+
+    // Home cities, weighted roughly by population
+    private static final String[] VILLES = {
+            "Paris", "Marseille", "Lyon", "Toulouse", "Nice", "Nantes", "Montpellier", "Strasbourg",
+            "Bordeaux", "Lille", "Rennes", "Reims", "Toulon", "Saint-Étienne", "Le Havre", "Grenoble",
+            "Dijon", "Angers", "Nîmes", "Clermont-Ferrand"};
+    private static final double[] POIDS_VILLES = {
+            21, 8.7, 5.2, 4.9, 3.4, 3.2, 2.9, 2.8, 2.6, 2.3, 2.2, 1.8, 1.7, 1.7, 1.7, 1.6, 1.6, 1.5, 1.5, 1.4};
+    private static final double PART_VILLE_HABITUELLE = 0.9;
+
+    // Operations per hour of the day (0h-23h) and per day of the week (Monday first)
+    private static final double[] POIDS_HEURES = {
+            0.6, 0.3, 0.2, 0.2, 0.2, 0.4, 1.0, 2.5, 4.0, 5.0, 5.5, 6.5,
+            8.0, 7.5, 5.5, 5.0, 5.5, 6.5, 7.5, 7.0, 5.5, 4.0, 2.5, 1.2};
+    private static final double[] POIDS_JOURS = {0.9, 0.9, 0.95, 1.0, 1.15, 1.3, 0.6};
+
+    private static final String[] TYPES = {"ACHAT", "RETRAIT", "PAIEMENTENLIGNE"};
+    // Type mix by period: night (0h-6h), day (7h-18h), evening (19h-23h)
+    private static final double[][] POIDS_TYPES = {{0.25, 0.10, 0.65}, {0.60, 0.22, 0.18}, {0.45, 0.10, 0.45}};
+
+    // Withdrawals in euros
+    private static final int[] RETRAITS = {20, 40, 50, 60, 80, 100, 150, 200, 300, 500};
+    private static final double[] POIDS_RETRAITS = {14, 18, 22, 12, 10, 12, 5, 4, 2, 1};
+
+    // Alert rules with their share, and the level the fraud engine gives them
+    private static final String[] REGLES = {
+            MoteurFraude.REGLE_MONTANT_ELEVE, MoteurFraude.REGLE_LIEUX_RAPPROCHES, MoteurFraude.REGLE_OPERATIONS_RAPIDES,
+            MoteurFraude.REGLE_MONTANT_CUMULE, MoteurFraude.REGLE_CHANGEMENTS_LIEU};
+    private static final double[] POIDS_REGLES = {30, 30, 20, 15, 5};
+    private static final String[] NIVEAUX_REGLES = {
+            FraudeService.NIVEAU_CRITIQUE, FraudeService.NIVEAU_AVERTISSEMENT, FraudeService.NIVEAU_AVERTISSEMENT,
+            FraudeService.NIVEAU_AVERTISSEMENT, FraudeService.NIVEAU_CRITIQUE};
+
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final CarteService carteService = new CarteService();
+    private final OperationImportDAO importDAO = new OperationImportDAO();
+    private final OperationPartitionDAO partitionDAO = new OperationPartitionDAO();
+    private final AlerteDAO alerteDAO = new AlerteDAO();
+    private final CumulCarteDAO cumulCarteDAO = new CumulCarteDAO();
+
+    private final SplittableRandom random;
+    private final LocalDate debut;
+    private final LocalDate fin;
+    private final double[] cumulVilles = cumuler(POIDS_VILLES);
+    private final double[] cumulHeures = cumuler(POIDS_HEURES);
+    private final double[][] cumulTypes = Arrays.stream(POIDS_TYPES).map(GenerateurDonnees::cumuler).toArray(double[][]::new);
+    private final double[] cumulRetraits = cumuler(POIDS_RETRAITS);
+    private final double[] cumulRegles = cumuler(POIDS_REGLES);
+    // Days of the period, weighted by day of the week, and their CSV prefix ("2025-09-30 ")
+    private final double[] cumulJours;
+    private final String[] prefixesJours;
+
+    // Active cards (the only ones that can receive operations) in Zipf rank order, with their home city
+    private int[] cartesActives = new int[1024];
+    private byte[] villesActives = new byte[1024];
+    private int nombreActives;
+    private double[] cumulCartes;
+
+    public GenerateurDonnees(long graine, LocalDate fin, int mois) {
+        this.random = new SplittableRandom(graine);
+        this.fin = fin;
+        this.debut = YearMonth.from(fin.minusDays(1)).minusMonths(mois - 1).atDay(1);
+
+        int jours = (int) (fin.toEpochDay() - debut.toEpochDay());
+        double[] poids = new double[jours];
+        prefixesJours = new String[jours];
+        for (int i = 0; i < jours; i++) {
+            LocalDate jour = debut.plusDays(i);
+            poids[i] = POIDS_JOURS[jour.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()];
+            prefixesJours[i] = jour + " ";
+        }
+        cumulJours = cumuler(poids);
+    }
+
+    public static void main(String[] args) {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long operations = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+        long graine = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        LocalDate fin = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.now();
+
+        int code = 0;
+        try {
+            new MigrationRunner().migrate();
+            new GenerateurDonnees(graine, fin, AppConfig.getInt("generateur.mois", 6)).generer(clients, operations);
+        } catch (SQLException e) {
+            System.err.println("Génération interrompue: " + e.getMessage());
+            code = 1;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(code);
+    }
+
+    public void generer(int clients, long operations) throws SQLException {
+        if (clients <= 0 || operations < 0) {
+            throw new IllegalArgumentException("Client count must be positive and operation count non-negative");
+        }
+        long debutGeneration = System.currentTimeMillis();
+        System.out.printf("Génération de %d clients et %d opérations du %s au %s%n", clients, operations, debut, fin.minusDays(1));
+
+        genererClientsEtCartes(clients);
+        if (nombreActives == 0) {
+            System.out.println("Aucune carte active: pas d'opérations générées.");
+            return;
+        }
+        classerCartes(AppConfig.getDouble("generateur.zipf", 0.8));
+
+        genererOperations(operations);
+        genererAlertes(operations * AppConfig.getInt("generateur.alertesPour1000Operations", 2) / 1000);
+
+        System.out.println("Recalcul des cumuls de plafonds: " + cumulCarteDAO.recalculer() + " cartes.");
+        analyser();
+        System.out.printf("Génération terminée en %.1fs%n", (System.currentTimeMillis() - debutGeneration) / 1000.0);
+    }
+
+    // Clients and cards
+
+    private void genererClientsEtCartes(int clients) throws SQLException {
+        for (int premier = 0; premier < clients; premier += CLIENTS_PAR_LOT) {
+            int taille = Math.min(CLIENTS_PAR_LOT, clients - premier);
+            List<Client> lot = new ArrayList<>(taille);
+            for (int i = 0; i < taille; i++) {
+                lot.add(nouveauClient(premier + i));
+            }
+            List<Integer> ids = clientDAO.saveAll(lot);
+
+            List<Carte> cartes = new ArrayList<>(taille * 2);
+            List<Byte> villes = new ArrayList<>(taille * 2);
+            for (int clientId : ids) {
+                byte ville = (byte) tirer(cumulVilles);
+                int nombre = 1;
+                while (nombre < MAX_CARTES_PAR_CLIENT && random.nextDouble() < 0.35) {
+                    nombre++;
+                }
+                for (int i = 0; i < nombre; i++) {
+                    cartes.add(nouvelleCarte(clientId));
+                    villes.add(ville);
+                }
+            }
+            carteService.emettreEnMasse(cartes.stream());
+
+            for (int i = 0; i < cartes.size(); i++) {
+                Carte carte = cartes.get(i);
+                // id stays 0 for a card rejected by the bulk issuance
+                if (carte.getId() > 0 && CarteService.STATUS_ACTIVE.equals(carte.getStatus())) {
+                    ajouterCarteActive(carte.getId(), villes.get(i));
+                }
+            }
+            System.out.printf("Clients: %d/%d, cartes actives: %d%n", premier + taille, clients, nombreActives);
+        }
+    }
+
+    private Client nouveauClient(int numero) {
+        String prenom = PRENOMS[random.nextInt(PRENOMS.length)];
+        String nom = NOMS[random.nextInt(NOMS.length)];
+        String email = (prenom + "." + nom + numero + "@exemple.test").toLowerCase();
+        String telephone = String.format("0%d%08d", 6 + random.nextInt(2), random.nextInt(100_000_000));
+        return new Client(0, prenom + " " + nom, email, telephone, "genere");
+    }
+
+    private Carte nouvelleCarte(int clientId) {
+        double tirage = random.nextDouble();
+        String statut = tirage < 0.90 ? CarteService.STATUS_ACTIVE
+                : tirage < 0.97 ? CarteService.STATUS_SUSPENDUE
+                : CarteService.STATUS_BLOQUEE;
+        // Inactive cards may have expired; active ones are valid for another 1 month to 4 years
+        int moisRestants = CarteService.STATUS_ACTIVE.equals(statut) ? 1 + random.nextInt(48) : random.nextInt(54) - 6;
+        Date expiration = Date.valueOf(fin.plusMonths(moisRestants).withDayOfMonth(1));
+
+        double type = random.nextDouble();
+        if (type < 0.60) {
+            BigDecimal plafond = BigDecimal.valueOf(500L * (1 + random.nextInt(6)));
+            return new CarteDebit(0, null, expiration, statut, clientId, plafond);
+        } else if (type < 0.85) {
+            BigDecimal plafond = BigDecimal.valueOf(1000L * (2 + random.nextInt(9)));
+            BigDecimal taux = BigDecimal.valueOf(90 + random.nextInt(111), 1);
+            return new CarteCredit(0, null, expiration, statut, clientId, plafond, taux);
+        } else {
+            return new CartePrepayee(0, null, expiration, statut, clientId, Montants.enDecimal(random.nextLong(10_00, 1000_00)));
+        }
+    }
+
+    private void ajouterCarteActive(int id, byte ville) {
+        if (nombreActives == cartesActives.length) {
+            cartesActives = Arrays.copyOf(cartesActives, nombreActives * 2);
+            villesActives = Arrays.copyOf(villesActives, nombreActives * 2);
+        }
+        cartesActives[nombreActives] = id;
+        villesActives[nombreActives] = ville;
+        nombreActives++;
+    }
+
+    // Shuffles the active cards so that activity does not follow the id order, then gives the
+    // card of rank r a weight of 1 / r^s
+    private void classerCartes(double exposant) {
+        for (int i = nombreActives - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int carte = cartesActives[i];
+            cartesActives[i] = cartesActives[j];
+            cartesActives[j] = carte;
+            byte ville = villesActives[i];
+            villesActives[i] = villesActives[j];
+            villesActives[j] = ville;
+        }
+        double[] poids = new double[nombreActives];
+        for (int rang = 0; rang < nombreActives; rang++) {
+            poids[rang] = 1 / Math.pow(rang + 1, exposant);
+        }
+        cumulCartes = cumuler(poids);
+    }
+
+    // Operations
+
+    private void genererOperations(long operations) throws SQLException {
+        for (YearMonth mois = YearMonth.from(debut); !mois.atDay(1).isAfter(fin.minusDays(1)); mois = mois.plusMonths(1)) {
+            partitionDAO.creerPartition(mois);
+        }
+
+        long debutImport = System.currentTimeMillis();
+        long importees = 0;
+        for (long restantes = operations; restantes > 0; restantes -= OPERATIONS_PAR_IMPORT) {
+            RapportImport rapport = importDAO.importCsv(new FluxOperations(Math.min(OPERATIONS_PAR_IMPORT, restantes)));
+            importees += rapport.lignesImportees();
+            if (rapport.lignesRejetees() > 0) {
+                System.out.println("Lignes rejetées par l'import: " + rapport.rejetsParMotif());
+            }
+            double secondes = (System.currentTimeMillis() - debutImport) / 1000.0;
+            System.out.printf("Opérations: %d/%d (%.0f lignes/s)%n", importees, operations,
+                    secondes == 0 ? importees : importees / secondes);
+        }
+    }
+
+    private void ecrireOperation(StringBuilder ligne) {
+        int rang = tirer(cumulCartes);
+        int heure = tirer(cumulHeures);
+        String type = TYPES[tirer(cumulTypes[heure < 7 ? 0 : heure < 19 ? 1 : 2])];
+
+        long montant = switch (type) {
+            case "RETRAIT" -> RETRAITS[tirer(cumulRetraits)] * 100L;
+            case "ACHAT" -> logNormal(35_00, 1.0);
+            default -> logNormal(50_00, 1.1);
+        };
+        int ville = random.nextDouble() < PART_VILLE_HABITUELLE ? villesActives[rang] : tirer(cumulVilles);
+
+        ligne.append(prefixesJours[tirer(cumulJours)]);
+        deuxChiffres(ligne, heure).append(':');
+        deuxChiffres(ligne, random.nextInt(60)).append(':');
+        deuxChiffres(ligne, random.nextInt(60)).append(',')
+                .append(Montants.formater(montant)).append(',')
+                .append(type).append(',')
+                .append(VILLES[ville]).append(',')
+                .append(cartesActives[rang]).append('\n');
+    }
+
+    // Amount in cents around a median, capped to the DECIMAL(10,2) column range
+    private long logNormal(long medianeCentimes, double sigma) {
+        long montant = Math.round(medianeCentimes * Math.exp(sigma * random.nextGaussian()));
+        return Math.max(50, Math.min(montant, 50_000_00));
+    }
+
+    /**
+     * CSV produced on demand while COPY reads it, so that millions of rows never sit in memory.
+     * Lines are generated in blocks of LIGNES_PAR_BLOC.
+     */
+    private class FluxOperations extends InputStream {
+        private static final int LIGNES_PAR_BLOC = 1000;
+
+        private long restantes;
+        private byte[] bloc = "date,montant,type,lieu,idcarte\n".getBytes(StandardCharsets.UTF_8);
+        private int position;
+
+        FluxOperations(long lignes) {
+            this.restantes = lignes;
+        }
+
+        @Override
+        public int read() {
+            if (!remplir()) {
+                return -1;
+            }
+            return bloc[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] tampon, int offset, int longueur) {
+            if (longueur == 0) {
+                return 0;
+            }
+            if (!remplir()) {
+                return -1;
+            }
+            int lus = Math.min(longueur, bloc.length - position);
+            System.arraycopy(bloc, position, tampon, offset, lus);
+            position += lus;
+            return lus;
+        }
+
+        // Returns false once every line has been read
+        private boolean remplir() {
+            if (position < bloc.length) {
+                return true;
+            }
+            if (restantes == 0) {
+                return false;
+            }
+            int lignes = (int) Math.min(LIGNES_PAR_BLOC, restantes);
+            StringBuilder texte = new StringBuilder(lignes * 64);
+            for (int i = 0; i < lignes; i++) {
+                ecrireOperation(texte);
+            }
+            restantes -= lignes;
+            bloc = texte.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+
+    // Fraud alerts
+
+    // Alerts hit the busiest cards more often, like the operations they would come from
+    private void genererAlertes(long alertes) throws SQLException {
+        long fenetreMs = AppConfig.getLong("fraude.fenetre.minutes", 30) * 60_000;
+        long ecrites = 0;
+        List<AlerteFraude> lot = new ArrayList<>(ALERTES_PAR_LOT);
+        for (long i = 0; i < alertes; i++) {
+            int rang = tirer(cumulCartes);
+            int regle = tirer(cumulRegles);
+            long instant = Timestamp.valueOf(prefixesJours[tirer(cumulJours)] + "00:00:00").getTime()
+                    + tirer(cumulHeures) * 3_600_000L + random.nextLong(3_600_000L);
+
+            lot.add(new AlerteFraude(0, descriptionAlerte(regle, villesActives[rang]), NIVEAUX_REGLES[regle],
+                    cartesActives[rang], REGLES[regle], "fenetre:" + instant / fenetreMs,
+                    1 + (random.nextDouble() < 0.2 ? random.nextInt(5) : 0), new Timestamp(instant), 0));
+            if (lot.size() == ALERTES_PAR_LOT || i == alertes - 1) {
+                ecrites += alerteDAO.upsertAll(lot).size();
+                lot.clear();
+                System.out.printf("Alertes: %d/%d%n", i + 1, alertes);
+            }
+        }
+        if (ecrites < alertes) {
+            System.out.println((alertes - ecrites) + " alertes fusionnées avec une alerte existante.");
+        }
+    }
+
+    private String descriptionAlerte(int regle, byte villeHabituelle) {
+        return switch (REGLES[regle]) {
+            case MoteurFraude.REGLE_MONTANT_ELEVE ->
+                    "Montant élevé détecté: " + Montants.formater(random.nextLong(1000_01, 10_000_00)) + "€";
+            case MoteurFraude.REGLE_LIEUX_RAPPROCHES ->
+                    "Opérations rapprochées dans des lieux différents: " + VILLES[villeHabituelle] + " et " + VILLES[tirer(cumulVilles)];
+            case MoteurFraude.REGLE_OPERATIONS_RAPIDES -> (51 + random.nextInt(30)) + " opérations en moins de 30 minutes";
+            case MoteurFraude.REGLE_MONTANT_CUMULE ->
+                    "Montant cumulé de " + Montants.formater(random.nextLong(2000_01, 8000_00)) + "€ en moins de 30 minutes";
+            default -> (4 + random.nextInt(4)) + " changements de lieu en moins de 30 minutes";
+        };
+    }
+
+    // Statistics for the planner after a bulk load
+    private void analyser() throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String table : List.of("client", "carte", "operationcarte", "alertefraude", "cumulcarte")) {
+                stmt.execute("ANALYZE " + table);
+            }
+        }
+        System.out.println("Statistiques des tables mises à jour (ANALYZE).");
+    }
+
+    // Sampling helpers
+
+    private static double[] cumuler(double[] poids) {
+        double[] cumul = new double[poids.length];
+        double somme = 0;
+        for (int i = 0; i < poids.length; i++) {
+            somme += poids[i];
+            cumul[i] = somme;
+        }
+        return cumul;
+    }
+
+    // Index drawn with probability proportional to its weight (binary search on the cumulated weights)
+    private int tirer(double[] cumul) {
+        int index = Arrays.binarySearch(cumul, random.nextDouble() * cumul[cumul.length - 1]);
+        return Math.min(index >= 0 ? index : -index - 1, cumul.length - 1);
+    }
+
+    private static StringBuilder deuxChiffres(StringBuilder ligne, int valeur) {
+        return (valeur < 10 ? ligne.append('0') : ligne).append(valeur);
+    }
+}
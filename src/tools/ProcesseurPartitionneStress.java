@@ -0,0 +1,217 @@
+package tools;
+
+import dao.CarteDAO;
+import dao.ClientDAO;
+import entity.*;
+import service.ProcesseurPartitionne;
+import service.PublicateurAlertes;
+import util.DBUtil;
+import util.MigrationRunner;
+import util.ShardStats;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Fails (exit code 1) if ProcesseurPartitionne does not process a card's operations in
+ * submission order, or needs a lock to do it. Producer threads submit interleaved operations
+ * on a few temporary debit cards (with a limit that all the operations fit in), so that every
+ * card receives requests from every producer at once. For each producer and card, the
+ * operation ids must increase in the order the producer submitted them; every request must be
+ * authorized and recorded, and no engine lock may have been waited for. The cards, their
+ * operations and alerts, and the client are deleted afterwards.
+ *
+ * Usage: java tools.ProcesseurPartitionneStress [operations] [producteurs] [cartes]
+ */
+public class ProcesseurPartitionneStress {
+    // Cents
+    private static final long MONTANT = 1_00;
+
+    private record Envoi(int carteId, CompletableFuture<ResultatAutorisation> resultat) {
+    }
+
+    private final CarteDAO carteDAO = new CarteDAO();
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final int operations;
+    private final int producteurs;
+    private final int nombreCartes;
+
+    public ProcesseurPartitionneStress(int operations, int producteurs, int nombreCartes) {
+        this.operations = operations;
+        this.producteurs = producteurs;
+        this.nombreCartes = nombreCartes;
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int producteurs = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int cartes = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        int code;
+        try {
+            new MigrationRunner().migrate();
+            code = new ProcesseurPartitionneStress(operations, producteurs, cartes).verifier() ? 0 : 1;
+        } catch (SQLException e) {
+            System.err.println("Vérification impossible: " + e.getMessage());
+            code = 2;
+        } finally {
+            PublicateurAlertes.getInstance().arreter();
+            DBUtil.shutdown();
+        }
+        System.exit(code);
+    }
+
+    public boolean verifier() throws SQLException {
+        String email = "stress-" + System.nanoTime() + "@partitions-check.test";
+        clientDAO.save(new Client(0, "Stress partitions", email, "0600000000", "x"));
+        int clientId = clientDAO.findByEmail(email)
+                .orElseThrow(() -> new SQLException("Test client not found: " + email))
+                .getId();
+
+        // The day's limit covers every operation a card can receive
+        BigDecimal plafond = BigDecimal.valueOf(MONTANT * (operations / nombreCartes + 1), 2);
+        Date expiration = Date.valueOf(LocalDate.now().plusYears(1));
+        List<Carte> cartes = new ArrayList<>(nombreCartes);
+        for (int i = 0; i < nombreCartes; i++) {
+            cartes.add(new CarteDebit(0, null, expiration, "ACTIVE", clientId, plafond));
+        }
+        List<Integer> carteIds = carteDAO.saveAll(cartes);
+
+        try {
+            return executer(carteIds);
+        } finally {
+            // Alerts of the test cards are written before the cards are deleted
+            PublicateurAlertes.getInstance().arreter();
+            supprimer(carteIds, clientId);
+        }
+    }
+
+    private boolean executer(List<Integer> carteIds) throws SQLException {
+        List<List<Envoi>> envoisParProducteur = new ArrayList<>(producteurs);
+        ShardStats stats;
+        long dureeNanos;
+
+        try (ProcesseurPartitionne processeur = new ProcesseurPartitionne()) {
+            ExecutorService executor = Executors.newFixedThreadPool(producteurs);
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<List<Envoi>>> producteursLances = new ArrayList<>();
+            for (int p = 0; p < producteurs; p++) {
+                int producteur = p;
+                producteursLances.add(executor.submit(() -> {
+                    List<Envoi> envois = new ArrayList<>();
+                    depart.await();
+                    // Every producer goes round the cards, so each card's queue mixes all producers
+                    for (int i = producteur; i < operations; i += producteurs) {
+                        int carteId = carteIds.get(i % carteIds.size());
+                        envois.add(new Envoi(carteId, processeur.soumettre(
+                                new DemandeOperation(carteId, MONTANT, "ACHAT", "Stress p" + producteur))));
+                    }
+                    return envois;
+                }));
+            }
+
+            long debut = System.nanoTime();
+            depart.countDown();
+            try {
+                for (Future<List<Envoi>> lance : producteursLances) {
+                    envoisParProducteur.add(lance.get());
+                }
+            } catch (ExecutionException e) {
+                throw new SQLException("Producer failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Stress test interrupted", e);
+            } finally {
+                executor.shutdownNow();
+            }
+
+            for (List<Envoi> envois : envoisParProducteur) {
+                for (Envoi envoi : envois) {
+                    try {
+                        envoi.resultat().join();
+                    } catch (CompletionException e) {
+                        // Counted as rejected or failed by the processor
+                    }
+                }
+            }
+            dureeNanos = System.nanoTime() - debut;
+            stats = processeur.getStats();
+        }
+
+        long desordres = 0;
+        for (List<Envoi> envois : envoisParProducteur) {
+            desordres += compterDesordres(envois);
+        }
+        long enregistrees = compterOperations(carteIds);
+        System.out.println(stats);
+        System.out.printf("Débit: %.0f opérations/s (%d opérations en %.2fs)%n",
+                stats.completed() / (dureeNanos / 1e9), stats.completed(), dureeNanos / 1e9);
+
+        boolean ok = true;
+        ok &= controler(stats.authorized() == operations, "opérations autorisées", stats.authorized(), operations);
+        ok &= controler(stats.rejected() == 0, "demandes rejetées", stats.rejected(), 0);
+        ok &= controler(stats.failed() == 0, "demandes en échec", stats.failed(), 0);
+        ok &= controler(enregistrees == stats.authorized(), "opérations enregistrées", enregistrees, stats.authorized());
+        ok &= controler(desordres == 0, "opérations hors ordre de soumission", desordres, 0);
+        ok &= controler(stats.lockWaits() == 0, "attentes de verrou des moteurs", stats.lockWaits(), 0);
+        return ok;
+    }
+
+    // Operations of one producer on one card must have been recorded in the order it submitted them
+    private static long compterDesordres(List<Envoi> envois) {
+        Map<Integer, Integer> dernierId = new HashMap<>();
+        long desordres = 0;
+        for (Envoi envoi : envois) {
+            if (envoi.resultat().isCompletedExceptionally()) {
+                continue;
+            }
+            ResultatAutorisation resultat = envoi.resultat().join();
+            if (!resultat.estAutorisee()) {
+                continue;
+            }
+            Integer precedent = dernierId.put(envoi.carteId(), resultat.idOperation());
+            if (precedent != null && precedent >= resultat.idOperation()) {
+                desordres++;
+            }
+        }
+        return desordres;
+    }
+
+    private static boolean controler(boolean ok, String nom, long valeur, long attendu) {
+        System.out.printf("%s %s: %d (attendu %d)%n", ok ? "OK    " : "ÉCHEC ", nom, valeur, attendu);
+        return ok;
+    }
+
+    private long compterOperations(List<Integer> carteIds) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM operationcarte WHERE idcarte = ANY(?)")) {
+            stmt.setArray(1, conn.createArrayOf("integer", carteIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void supprimer(List<Integer> carteIds, int clientId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            Array ids = conn.createArrayOf("integer", carteIds.toArray());
+            for (String table : List.of("alertefraude", "operationcarte")) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE idcarte = ANY(?)")) {
+                    stmt.setArray(1, ids);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+        for (int carteId : carteIds) {
+            carteDAO.delete(carteId);
+        }
+        clientDAO.delete(clientId);
+    }
+}
@@ -0,0 +1,183 @@
+package tools;
+
+import dao.CarteDAO;
+import dao.ClientDAO;
+import entity.*;
+import service.ProcesseurOperations;
+import service.PublicateurAlertes;
+import util.DBUtil;
+import util.MigrationRunner;
+import util.PoolStats;
+import util.ProcessorStats;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Fails (exit code 1) if ProcesseurOperations cannot absorb thousands of concurrent requests.
+ * Temporary debit cards (with a limit that all the requests fit in) receive operations submitted
+ * from many producer threads at once, far more than the connection pool has connections. Every
+ * future must complete with an authorization, no request may time out in the pool, more
+ * requests than semaphore permits must have been in flight at some point, and every authorized
+ * operation must be in operationcarte. The cards, their operations and alerts, and the client
+ * are deleted afterwards.
+ *
+ * Usage: java tools.ProcesseurStress [demandes] [producteurs] [cartes]
+ */
+public class ProcesseurStress {
+    // Cents
+    private static final long MONTANT = 1_00;
+
+    private final CarteDAO carteDAO = new CarteDAO();
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final int demandes;
+    private final int producteurs;
+    private final int nombreCartes;
+
+    public ProcesseurStress(int demandes, int producteurs, int nombreCartes) {
+        this.demandes = demandes;
+        this.producteurs = producteurs;
+        this.nombreCartes = nombreCartes;
+    }
+
+    public static void main(String[] args) {
+        int demandes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int producteurs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int cartes = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        int code;
+        try {
+            new MigrationRunner().migrate();
+            code = new ProcesseurStress(demandes, producteurs, cartes).verifier() ? 0 : 1;
+        } catch (SQLException e) {
+            System.err.println("Vérification impossible: " + e.getMessage());
+            code = 2;
+        } finally {
+            PublicateurAlertes.getInstance().arreter();
+            DBUtil.shutdown();
+        }
+        System.exit(code);
+    }
+
+    public boolean verifier() throws SQLException {
+        String email = "stress-" + System.nanoTime() + "@processeur-check.test";
+        clientDAO.save(new Client(0, "Stress processeur", email, "0600000000", "x"));
+        int clientId = clientDAO.findByEmail(email)
+                .orElseThrow(() -> new SQLException("Test client not found: " + email))
+                .getId();
+
+        // The day's limit covers every request a card can receive
+        BigDecimal plafond = BigDecimal.valueOf(MONTANT * (demandes / nombreCartes + 1), 2);
+        Date expiration = Date.valueOf(LocalDate.now().plusYears(1));
+        List<Carte> cartes = new ArrayList<>(nombreCartes);
+        for (int i = 0; i < nombreCartes; i++) {
+            cartes.add(new CarteDebit(0, null, expiration, "ACTIVE", clientId, plafond));
+        }
+        List<Integer> carteIds = carteDAO.saveAll(cartes);
+
+        try {
+            return executer(carteIds);
+        } finally {
+            // Alerts of the test cards are written before the cards are deleted
+            PublicateurAlertes.getInstance().arreter();
+            supprimer(carteIds, clientId);
+        }
+    }
+
+    private boolean executer(List<Integer> carteIds) throws SQLException {
+        long timeoutsAvant = DBUtil.getPoolStats().timeouts();
+        List<CompletableFuture<ResultatAutorisation>> futurs = new CopyOnWriteArrayList<>();
+        ProcessorStats stats;
+
+        try (ProcesseurOperations processeur = new ProcesseurOperations()) {
+            ExecutorService executor = Executors.newFixedThreadPool(producteurs);
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<?>> envois = new ArrayList<>();
+            for (int p = 0; p < producteurs; p++) {
+                int producteur = p;
+                envois.add(executor.submit(() -> {
+                    depart.await();
+                    for (int i = producteur; i < demandes; i += producteurs) {
+                        int carteId = carteIds.get(i % carteIds.size());
+                        futurs.add(processeur.soumettre(new DemandeOperation(carteId, MONTANT, "ACHAT", "Stress")));
+                    }
+                    return null;
+                }));
+            }
+            depart.countDown();
+            try {
+                for (Future<?> envoi : envois) {
+                    envoi.get();
+                }
+            } catch (ExecutionException e) {
+                throw new SQLException("Producer failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Stress test interrupted", e);
+            } finally {
+                executor.shutdownNow();
+            }
+
+            for (CompletableFuture<ResultatAutorisation> futur : futurs) {
+                try {
+                    futur.join();
+                } catch (CompletionException e) {
+                    // Counted as failed by the processor
+                }
+            }
+            stats = processeur.getStats();
+        }
+
+        PoolStats pool = DBUtil.getPoolStats();
+        long timeouts = pool.timeouts() - timeoutsAvant;
+        long enregistrees = compterOperations(carteIds);
+        System.out.println(stats);
+        System.out.println(pool);
+
+        boolean ok = true;
+        ok &= controler(stats.completed() == demandes, "demandes terminées", stats.completed(), demandes);
+        ok &= controler(stats.failed() == 0, "demandes en échec", stats.failed(), 0);
+        ok &= controler(stats.refused() == 0, "demandes refusées", stats.refused(), 0);
+        ok &= controler(timeouts == 0, "attentes expirées dans le pool", timeouts, 0);
+        ok &= controler(enregistrees == stats.authorized(), "opérations enregistrées", enregistrees, stats.authorized());
+        ok &= controler(stats.maxInFlight() > stats.permits(), "demandes simultanées au maximum (> permis)",
+                stats.maxInFlight(), stats.permits());
+        return ok;
+    }
+
+    private static boolean controler(boolean ok, String nom, long valeur, long attendu) {
+        System.out.printf("%s %s: %d (attendu %d)%n", ok ? "OK    " : "ÉCHEC ", nom, valeur, attendu);
+        return ok;
+    }
+
+    private long compterOperations(List<Integer> carteIds) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM operationcarte WHERE idcarte = ANY(?)")) {
+            stmt.setArray(1, conn.createArrayOf("integer", carteIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void supprimer(List<Integer> carteIds, int clientId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            Array ids = conn.createArrayOf("integer", carteIds.toArray());
+            for (String table : List.of("alertefraude", "operationcarte")) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE idcarte = ANY(?)")) {
+                    stmt.setArray(1, ids);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+        for (int carteId : carteIds) {
+            carteDAO.delete(carteId);
+        }
+        clientDAO.delete(clientId);
+    }
+}
@@ -0,0 +1,163 @@
+package tools;
+
+import util.DBUtil;
+import util.MigrationRunner;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fails (exit code 1) if one of the indexed DAO queries is planned with a
+ * sequential scan. When the database is small, a large synthetic dataset is
+ * inserted first; everything runs in one transaction that is rolled back,
+ * so the check leaves the database unchanged.
+ *
+ * Usage: java tools.QueryPlanCheck
+ */
+public class QueryPlanCheck {
+    private static final long SEUIL_OPERATIONS = 200_000;
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private record Requete(String nom, String sql) {}
+
+    // Queries expected to use an index. findAll, findByType and the global aggregates
+    // read most of the table by design and are deliberately not listed.
+    private static final List<Requete> REQUETES = List.of(
+            new Requete("CarteDAO.findById", "SELECT * FROM carte WHERE id = 1"),
+            new Requete("CarteDAO.findByIds", "SELECT * FROM carte WHERE id = ANY('{1,2,3}'::int[])"),
+            new Requete("CarteDAO.findByNumero", "SELECT * FROM carte WHERE numero = '400000000001'"),
+            new Requete("CarteDAO.findByClientId", "SELECT * FROM carte WHERE idclient = 1"),
+            new Requete("CarteDAO.findByStatut", "SELECT * FROM carte WHERE statut = 'BLOQUEE'"),
+            new Requete("OperationDAO.findById", "SELECT * FROM operationcarte WHERE id = 1"),
+            new Requete("OperationDAO.findByCarteId",
+                    "SELECT * FROM operationcarte WHERE idcarte = 1 ORDER BY date DESC, id DESC"),
+            new Requete("OperationDAO.findPage",
+                    "SELECT * FROM operationcarte WHERE (date, id) < (now()::timestamp, 0) ORDER BY date DESC, id DESC LIMIT 50"),
+            new Requete("OperationDAO.findPageByCarteId",
+                    "SELECT * FROM operationcarte WHERE idcarte = 1 AND (date, id) < (now()::timestamp, 0) "
+                            + "ORDER BY date DESC, id DESC LIMIT 50"),
+            new Requete("OperationDAO.findByCarteIdSince",
+                    "SELECT * FROM operationcarte WHERE idcarte = 1 AND date >= TIMESTAMP '2025-11-01' "
+                            + "ORDER BY date DESC, id DESC"),
+            new Requete("OperationDAO.findByClientIdSince",
+                    "SELECT o.* FROM operationcarte o JOIN carte c ON c.id = o.idcarte "
+                            + "WHERE c.idclient = 1 AND o.date >= TIMESTAMP '2025-11-01' ORDER BY o.date DESC, o.id DESC"),
+            new Requete("OperationDAO.findByClientId",
+                    "SELECT o.* FROM operationcarte o JOIN carte c ON c.id = o.idcarte WHERE c.idclient = 1 "
+                            + "ORDER BY o.date DESC, o.id DESC"),
+            new Requete("OperationDAO.countByCarteForClient",
+                    "SELECT o.idcarte, COUNT(*) FROM operationcarte o JOIN carte c ON c.id = o.idcarte "
+                            + "WHERE c.idclient = 1 GROUP BY o.idcarte"),
+            new Requete("AlerteDAO.findByCarteId", "SELECT * FROM alertefraude WHERE idcarte = 1 ORDER BY id DESC"),
+            new Requete("AlerteDAO.findByNiveau", "SELECT * FROM alertefraude WHERE niveau = 'CRITIQUE' ORDER BY id DESC"),
+            new Requete("ClientDAO.findByEmail", "SELECT * FROM client WHERE email = 'alice.martin@email.com'")
+    );
+
+    // Synthetic data: most cards active, few blocked, alert levels skewed towards INFO
+    private static final String[] SEED_SQL = {
+            """
+            INSERT INTO client (nom, email, telephone, password)
+            SELECT 'Client ' || g, 'client' || g || '@plan-check.test', '06' || lpad(g::text, 8, '0'), 'x'
+            FROM generate_series(1, 20000) g
+            """,
+            """
+            INSERT INTO carte (numero, dateexpiration, statut, typecarte, plafondjournalier, idclient)
+            SELECT 'PC' || lpad(g::text, 14, '0'), DATE '2030-01-01',
+                   CASE WHEN g % 100 < 90 THEN 'ACTIVE' WHEN g % 100 < 97 THEN 'SUSPENDUE' ELSE 'BLOQUEE' END,
+                   'CarteDebit', 1000, (SELECT min(id) FROM client) + (g % 20000)
+            FROM generate_series(1, 50000) g
+            """,
+            "SELECT creer_partition_operationcarte((DATE '2025-01-01' + n * INTERVAL '1 month')::date) "
+                    + "FROM generate_series(0, 11) AS n",
+            """
+            INSERT INTO operationcarte (date, montant, type, lieu, idcarte)
+            SELECT TIMESTAMP '2025-01-01' + (g || ' minutes')::interval, (g % 500) + 0.99,
+                   (ARRAY['ACHAT', 'RETRAIT', 'PAIEMENTENLIGNE'])[1 + g % 3],
+                   (ARRAY['Paris', 'Lyon', 'Marseille', 'Lille'])[1 + g % 4],
+                   (SELECT min(id) FROM carte) + (g % 50000)
+            FROM generate_series(1, 500000) g
+            """,
+            """
+            INSERT INTO alertefraude (description, niveau, idcarte)
+            SELECT 'Alerte ' || g,
+                   CASE WHEN g % 100 < 70 THEN 'INFO' WHEN g % 100 < 95 THEN 'AVERTISSEMENT' ELSE 'CRITIQUE' END,
+                   (SELECT min(id) FROM carte) + (g % 50000)
+            FROM generate_series(1, 50000) g
+            """,
+            "ANALYZE client",
+            "ANALYZE carte",
+            "ANALYZE operationcarte",
+            "ANALYZE alertefraude"
+    };
+
+    public static void main(String[] args) {
+        int code;
+        try {
+            new MigrationRunner().migrate();
+            code = new QueryPlanCheck().verifier() ? 0 : 1;
+        } catch (SQLException e) {
+            System.err.println("Vérification impossible: " + e.getMessage());
+            code = 2;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(code);
+    }
+
+    public boolean verifier() throws SQLException {
+        List<String> echecs = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                if (compterOperations(stmt) < SEUIL_OPERATIONS) {
+                    System.out.println("Insertion d'un jeu de données volumineux (annulé en fin de vérification)...");
+                    for (String sql : SEED_SQL) {
+                        stmt.execute(sql);
+                    }
+                }
+
+                for (Requete requete : REQUETES) {
+                    String plan = expliquer(stmt, requete.sql());
+                    Matcher matcher = SEQ_SCAN.matcher(plan);
+                    if (matcher.find()) {
+                        echecs.add(requete.nom() + ": Seq Scan on " + matcher.group(1));
+                        System.out.println("ÉCHEC  " + requete.nom() + "\n" + plan);
+                    } else {
+                        System.out.println("OK     " + requete.nom());
+                    }
+                }
+            } finally {
+                conn.rollback();
+            }
+        }
+
+        if (!echecs.isEmpty()) {
+            System.out.println("\n" + echecs.size() + " requête(s) sans index adapté:");
+            echecs.forEach(echec -> System.out.println("- " + echec));
+            return false;
+        }
+        System.out.println("\nToutes les requêtes utilisent un index.");
+        return true;
+    }
+
+    private long compterOperations(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM operationcarte")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private String expliquer(Statement stmt, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
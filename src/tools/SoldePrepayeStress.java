@@ -0,0 +1,191 @@
+package tools;
+
+import dao.CarteDAO;
+import dao.ClientDAO;
+import dao.OperationDAO;
+import entity.*;
+import util.AppConfig;
+import util.DBUtil;
+import util.MigrationRunner;
+import util.Montants;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fails (exit code 1) if concurrent debits can overdraw a prepaid card. A temporary card is
+ * funded, then hammered from many threads with more debits than its balance allows, first
+ * through CarteDAO.debiterSolde and then through OperationDAO.autoriser. Exactly the affordable
+ * number of debits must succeed, the balance must end at zero, and every authorized operation
+ * must have been recorded. The card, its operations and its client are deleted afterwards.
+ *
+ * Usage: java tools.SoldePrepayeStress [threads] [tentatives]
+ */
+public class SoldePrepayeStress {
+    // Cents
+    private static final long SOLDE_INITIAL = 100_00;
+    private static final long MONTANT = 50;
+
+    private final CarteDAO carteDAO = new CarteDAO();
+    private final OperationDAO operationDAO = new OperationDAO();
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final int threads;
+    private final int tentatives;
+
+    public SoldePrepayeStress(int threads, int tentatives) {
+        this.threads = threads;
+        this.tentatives = tentatives;
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : AppConfig.getInt("db.pool.maxSize", 10) * 2;
+        int tentatives = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        int code;
+        try {
+            new MigrationRunner().migrate();
+            code = new SoldePrepayeStress(threads, tentatives).verifier() ? 0 : 1;
+        } catch (SQLException e) {
+            System.err.println("Vérification impossible: " + e.getMessage());
+            code = 2;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(code);
+    }
+
+    public boolean verifier() throws SQLException {
+        String email = "stress-" + System.nanoTime() + "@solde-check.test";
+        clientDAO.save(new Client(0, "Stress solde", email, "0600000000", "x"));
+        int clientId = clientDAO.findByEmail(email)
+                .orElseThrow(() -> new SQLException("Test client not found: " + email))
+                .getId();
+
+        CartePrepayee carte = new CartePrepayee(0, null, Date.valueOf(LocalDate.now().plusYears(1)),
+                "ACTIVE", clientId, Montants.enDecimal(SOLDE_INITIAL));
+        carteDAO.save(carte);
+
+        try {
+            boolean ok = verifierDebits(carte.getId());
+            carteDAO.crediterSolde(carte.getId(), SOLDE_INITIAL);
+            return verifierAutorisations(carte.getId()) && ok;
+        } finally {
+            supprimer(carte.getId(), clientId);
+        }
+    }
+
+    private boolean verifierDebits(int carteId) throws SQLException {
+        AtomicInteger acceptes = new AtomicInteger();
+        executer(() -> {
+            if (carteDAO.debiterSolde(carteId, MONTANT).isPresent()) {
+                acceptes.incrementAndGet();
+            }
+        });
+        return controler("CarteDAO.debiterSolde", carteId, acceptes.get(), 0);
+    }
+
+    private boolean verifierAutorisations(int carteId) throws SQLException {
+        AtomicInteger acceptes = new AtomicInteger();
+        AtomicInteger autresRefus = new AtomicInteger();
+        executer(() -> {
+            OperationCarte operation = new OperationCarte(0, Timestamp.valueOf(LocalDateTime.now()),
+                    MONTANT, "ACHAT", "Stress", carteId);
+            ResultatAutorisation resultat = operationDAO.autoriser(operation);
+            if (resultat.estAutorisee()) {
+                acceptes.incrementAndGet();
+            } else if (resultat.motif() != MotifRefus.SOLDE_INSUFFISANT) {
+                autresRefus.incrementAndGet();
+            }
+        });
+
+        boolean ok = controler("OperationDAO.autoriser", carteId, acceptes.get(), autresRefus.get());
+        long enregistrees = compterOperations(carteId);
+        if (enregistrees != acceptes.get()) {
+            System.out.println("ÉCHEC  " + enregistrees + " opérations enregistrées pour " + acceptes.get() + " autorisées");
+            return false;
+        }
+        return ok;
+    }
+
+    private interface Tentative {
+        void executer() throws SQLException;
+    }
+
+    // Runs the attempts from all threads at once; the first failure is rethrown
+    private void executer(Tentative tentative) throws SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<Void>> resultats = new ArrayList<>();
+        try {
+            for (int i = 0; i < tentatives; i++) {
+                resultats.add(executor.submit(() -> {
+                    depart.await();
+                    tentative.executer();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<Void> resultat : resultats) {
+                resultat.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Stress test interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean controler(String nom, int carteId, int acceptes, int autresRefus) throws SQLException {
+        int attendus = (int) Math.min(tentatives, SOLDE_INITIAL / MONTANT);
+        long soldeAttendu = SOLDE_INITIAL - MONTANT * attendus;
+        long solde = lireSolde(carteId);
+
+        boolean ok = acceptes == attendus && solde == soldeAttendu && autresRefus == 0;
+        System.out.printf("%s %s: %d/%d débits acceptés (attendu %d), solde final %s€ (attendu %s€)%s%n",
+                ok ? "OK    " : "ÉCHEC ", nom, acceptes, tentatives, attendus,
+                Montants.formater(solde), Montants.formater(soldeAttendu),
+                autresRefus > 0 ? ", " + autresRefus + " refus inattendus" : "");
+        return ok;
+    }
+
+    // Read from the table, not through the card cache
+    private long lireSolde(int carteId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT soldedisponible FROM carte WHERE id = ?")) {
+            stmt.setInt(1, carteId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return Montants.lire(rs, "soldedisponible");
+            }
+        }
+    }
+
+    private long compterOperations(int carteId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM operationcarte WHERE idcarte = ?")) {
+            stmt.setInt(1, carteId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void supprimer(int carteId, int clientId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM operationcarte WHERE idcarte = ?")) {
+            stmt.setInt(1, carteId);
+            stmt.executeUpdate();
+        }
+        carteDAO.delete(carteId);
+        clientDAO.delete(clientId);
+    }
+}
@@ -6,11 +6,15 @@ import service.OperationService;
 import service.FraudeService;
 import service.RapportService;
 import entity.*;
+import util.AppConfig;
+import util.Montants;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 
 public class MainMenu {
     private final ClientService clientService;
@@ -20,6 +24,9 @@ public class MainMenu {
     private final RapportService rapportService;
     private final Scanner scanner;
 
+    // Days of operation history shown to the client
+    private static final int HISTORIQUE_JOURS = AppConfig.getInt("operations.historique.jours", 90);
+
     public MainMenu() {
         this.clientService = new ClientService();
         this.carteService = new CarteService();
@@ -160,7 +167,6 @@ public class MainMenu {
         String typeChoice = scanner.nextLine();
 
         try {
-            String numeroGenere = generateCardNumber();
             Date dateExpiration = Date.valueOf(LocalDate.now().plusYears(3));
 
             Carte nouvelleCarte;
@@ -173,7 +179,7 @@ public class MainMenu {
                         BigDecimal.valueOf(1000) :
                         new BigDecimal(plafondStr);
 
-                    nouvelleCarte = new CarteDebit(0, numeroGenere, dateExpiration,
+                    nouvelleCarte = new CarteDebit(0, null, dateExpiration,
                         CarteService.STATUS_ACTIVE, client.getId(), plafond);
                 }
                 case "2" -> {
@@ -189,7 +195,7 @@ public class MainMenu {
                         BigDecimal.valueOf(15) :
                         new BigDecimal(tauxStr);
 
-                    nouvelleCarte = new CarteCredit(0, numeroGenere, dateExpiration,
+                    nouvelleCarte = new CarteCredit(0, null, dateExpiration,
                         CarteService.STATUS_ACTIVE, client.getId(), plafondMensuel, taux);
                 }
                 case "3" -> {
@@ -197,7 +203,7 @@ public class MainMenu {
                     String soldeStr = scanner.nextLine();
                     BigDecimal solde = new BigDecimal(soldeStr);
 
-                    nouvelleCarte = new CartePrepayee(0, numeroGenere, dateExpiration,
+                    nouvelleCarte = new CartePrepayee(0, null, dateExpiration,
                         CarteService.STATUS_ACTIVE, client.getId(), solde);
                 }
                 default -> {
@@ -206,8 +212,9 @@ public class MainMenu {
                 }
             }
 
+            // No number given: CarteService.add issues one
             carteService.add(nouvelleCarte);
-            System.out.println("Carte créée avec succès! Numéro: " + maskCardNumber(numeroGenere));
+            System.out.println("Carte créée avec succès! Numéro: " + maskCardNumber(nouvelleCarte.getNumero()));
 
         } catch (Exception e) {
             System.out.println("Erreur lors de la création de la carte: " + e.getMessage());
@@ -305,7 +312,7 @@ public class MainMenu {
             String typeOp = scanner.nextLine();
 
             System.out.print("Montant: ");
-            double montant = Double.parseDouble(scanner.nextLine());
+            long montant = Montants.parser(scanner.nextLine());
 
             System.out.print("Lieu: ");
             String lieu = scanner.nextLine();
@@ -319,9 +326,7 @@ public class MainMenu {
                     return;
                 }
             }
-
-            // Analyze for fraud after operation
-            fraudeService.analyserFraude(carteId);
+            // Fraud checks run inside enregistrerOperation, on the new operation only
 
         } catch (Exception e) {
             System.out.println("Erreur lors de l'opération: " + e.getMessage());
@@ -337,16 +342,22 @@ public class MainMenu {
                 return;
             }
 
-            System.out.println("\n=== Historique des Opérations ===");
+            System.out.println("\n=== Historique des Opérations (" + HISTORIQUE_JOURS + " derniers jours) ===");
+
+            // One query for the client's recent operations, grouped by card for display
+            Map<Integer, List<OperationCarte>> operationsParCarte = operationService
+                .getOperationsRecentesByClient(client.getId(), HISTORIQUE_JOURS)
+                .stream()
+                .collect(Collectors.groupingBy(OperationCarte::idCarte));
 
             for (Carte carte : cartes) {
-                List<OperationCarte> operations = operationService.getOperationsByCard(carte.getId());
+                List<OperationCarte> operations = operationsParCarte.getOrDefault(carte.getId(), List.of());
 
                 if (!operations.isEmpty()) {
                     System.out.println("\nCarte " + maskCardNumber(carte.getNumero()) + ":");
                     for (OperationCarte op : operations) {
-                        System.out.printf("  %s | %.2f€ | %s | %s%n",
-                            op.date(), op.montant(), op.type(), op.lieu());
+                        System.out.printf("  %s | %s€ | %s | %s%n",
+                            op.date(), Montants.formater(op.montant()), op.type(), op.lieu());
                     }
                 }
             }
@@ -375,7 +386,10 @@ public class MainMenu {
                     hasAlerts = true;
                     System.out.println("\nCarte " + maskCardNumber(carte.getNumero()) + ":");
                     for (AlerteFraude alerte : alertes) {
-                        System.out.printf("  [%s] %s%n", alerte.niveau(), alerte.description());
+                        String repetitions = alerte.occurrences() > 1
+                            ? " (x" + alerte.occurrences() + ", dernière le " + alerte.derniereDetection() + ")"
+                            : "";
+                        System.out.printf("  [%s] %s%s%n", alerte.niveau(), alerte.description(), repetitions);
                     }
                 }
             }
@@ -448,9 +462,4 @@ public class MainMenu {
         }
         return numero;
     }
-
-    private String generateCardNumber() {
-        // Simple card number generation (in real app, this would be more sophisticated)
-        return "4000" + String.format("%012d", (long) (Math.random() * 1000000000000L));
-    }
 }
@@ -0,0 +1,22 @@
+package util;
+
+public record CacheStats(int size,
+                         int maxSize,
+                         long hits,
+                         long misses,
+                         long evictions,
+                         long expirations,
+                         long invalidations) {
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Cache[size=%d/%d, hits=%d, misses=%d, hitRatio=%.1f%%, evictions=%d, expirations=%d, invalidations=%d]",
+                size, maxSize, hits, misses, hitRatio() * 100, evictions, expirations, invalidations);
+    }
+}
@@ -0,0 +1,223 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-capacity JDBC connection pool.
+ * A semaphore caps the number of borrowed connections at maxSize; idle
+ * connections are kept in a LIFO deque so the most recently used (and
+ * therefore most likely still healthy) connection is handed out first.
+ */
+public final class ConnectionPool {
+    private final PoolConfig config;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config) {
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::evictAndRefill,
+                0, config.evictionIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timeout: no database connection available after "
+                        + config.acquireTimeoutMs() + " ms (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = acquire();
+            active.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed) {
+                destroy(pooled);
+                return;
+            }
+            try {
+                pooled.reset();
+                pooled.markReleased();
+                idle.offerFirst(pooled);
+            } catch (SQLException e) {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public PoolStats getStats() {
+        long count = acquisitions.sum();
+        return new PoolStats(
+                active.get(),
+                idle.size(),
+                total.get(),
+                count,
+                timeouts.sum(),
+                count == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / count,
+                maxWaitNanos.get() / 1_000_000.0,
+                created.sum(),
+                destroyed.sum(),
+                validationFailures.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum()
+        );
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // The permit guarantees a connection is free or can be opened without exceeding maxSize
+    private PooledConnection acquire() throws SQLException {
+        while (true) {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled != null) {
+                return pooled;
+            }
+            if (reserveSlot(config.maxSize())) {
+                return open();
+            }
+            // Another thread is handing a connection back to the idle deque
+            Thread.onSpinWait();
+        }
+    }
+
+    // Connections that sat idle for a while are checked before being handed out
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.idleMillis() < config.validationIntervalMs()
+                    || pooled.isValid(config.validationTimeoutSeconds())) {
+                return pooled;
+            }
+            validationFailures.increment();
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean reserveSlot(int limit) {
+        int current;
+        do {
+            current = total.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    // Opens a physical connection for a slot already counted in total
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(config.url(), config.user(), config.password());
+            created.increment();
+            return new PooledConnection(this, physical, config.statementCacheSize());
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        pooled.closePhysical();
+        total.decrementAndGet();
+        destroyed.increment();
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    private void recordWait(long waitNanos) {
+        acquisitions.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // Close connections idle for longer than idleTimeout (oldest first), then top up to minIdle
+    private void evictAndRefill() {
+        if (closed) {
+            return;
+        }
+
+        PooledConnection oldest;
+        while (idle.size() > config.minIdle() && (oldest = idle.pollLast()) != null) {
+            if (oldest.idleMillis() < config.idleTimeoutMs()) {
+                idle.offerLast(oldest);
+                break;
+            }
+            destroy(oldest);
+        }
+
+        try {
+            while (!closed && reserveSlot(config.minIdle())) {
+                idle.offerLast(open());
+            }
+        } catch (SQLException e) {
+            System.err.println("Connection pool: cannot open idle connection: " + e.getMessage());
+        }
+    }
+}
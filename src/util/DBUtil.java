@@ -1,15 +1,38 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBUtil {
-    private static final String URL = "jdbc:postgresql://localhost:5432/banking_db";
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "root";
+    private static volatile ConnectionPool pool;
 
+    // Connections come from a shared pool; closing them returns them to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getPool().getConnection();
+    }
+
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DBUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(PoolConfig.fromAppConfig());
+                    pool = current;
+                }
+            }
+        }
+        return current;
     }
 }
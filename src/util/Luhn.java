@@ -0,0 +1,44 @@
+package util;
+
+/**
+ * Luhn (mod 10) check digit used by card numbers.
+ */
+public final class Luhn {
+
+    private Luhn() {
+    }
+
+    // Check digit to append to the given digits
+    public static int chiffreControle(CharSequence chiffres) {
+        int somme = 0;
+        // The rightmost digit of the payload is doubled, since the check digit will follow it
+        boolean doubler = true;
+        for (int i = chiffres.length() - 1; i >= 0; i--) {
+            int chiffre = valeur(chiffres.charAt(i));
+            if (doubler) {
+                chiffre *= 2;
+                if (chiffre > 9) {
+                    chiffre -= 9;
+                }
+            }
+            somme += chiffre;
+            doubler = !doubler;
+        }
+        return (10 - somme % 10) % 10;
+    }
+
+    public static boolean estValide(String numero) {
+        if (numero == null || numero.length() < 2 || !numero.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int dernier = numero.length() - 1;
+        return chiffreControle(numero.substring(0, dernier)) == valeur(numero.charAt(dernier));
+    }
+
+    private static int valeur(char c) {
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Not a digit: " + c);
+        }
+        return c - '0';
+    }
+}
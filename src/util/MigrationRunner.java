@@ -0,0 +1,150 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the numbered SQL scripts listed in db/migration/migrations.list and
+ * records each applied version in schema_version. Every script runs in its own
+ * transaction; a session advisory lock keeps two instances from migrating at once.
+ */
+public class MigrationRunner {
+    private static final String MIGRATION_DIR = "db/migration/";
+    private static final String INDEX_FILE = MIGRATION_DIR + "migrations.list";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final long ADVISORY_LOCK_KEY = 7_340_125_001L;
+
+    private static final String CREATE_VERSION_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INT PRIMARY KEY,
+                description VARCHAR(200) NOT NULL,
+                checksum BIGINT NOT NULL,
+                applied_at TIMESTAMP NOT NULL DEFAULT now()
+            )
+            """;
+
+    private record Migration(int version, String description, String fileName, String script, long checksum) {}
+
+    public void migrate() throws SQLException {
+        List<Migration> migrations = loadMigrations();
+
+        try (Connection conn = DBUtil.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE_SQL);
+                stmt.execute("SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")");
+            }
+
+            try {
+                Map<Integer, Long> applied = findAppliedVersions(conn);
+
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version());
+                    if (checksum == null) {
+                        apply(conn, migration);
+                    } else if (checksum != migration.checksum()) {
+                        System.err.println("Attention: la migration " + migration.fileName()
+                                + " a été modifiée après son application");
+                    }
+                }
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+                }
+            }
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(migration.script());
+            }
+
+            String sql = "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, migration.version());
+                stmt.setString(2, migration.description());
+                stmt.setLong(3, migration.checksum());
+                stmt.executeUpdate();
+            }
+
+            conn.commit();
+            System.out.println("Migration appliquée: " + migration.fileName());
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + migration.fileName() + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private Map<Integer, Long> findAppliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private List<Migration> loadMigrations() throws SQLException {
+        List<Migration> migrations = new ArrayList<>();
+        int previousVersion = 0;
+
+        for (String fileName : readLines(INDEX_FILE)) {
+            Matcher matcher = FILE_NAME.matcher(fileName);
+            if (!matcher.matches()) {
+                throw new SQLException("Invalid migration file name: " + fileName);
+            }
+
+            int version = Integer.parseInt(matcher.group(1));
+            if (version <= previousVersion) {
+                throw new SQLException("Migrations must be listed in increasing version order: " + fileName);
+            }
+            previousVersion = version;
+
+            String script = String.join("\n", readAllLines(MIGRATION_DIR + fileName));
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+
+            migrations.add(new Migration(version, matcher.group(2).replace('_', ' '), fileName, script, crc.getValue()));
+        }
+        return migrations;
+    }
+
+    // Non-empty, non-comment lines of the index file
+    private List<String> readLines(String resource) throws SQLException {
+        return readAllLines(resource).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+    }
+
+    private List<String> readAllLines(String resource) throws SQLException {
+        InputStream in = MigrationRunner.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new SQLException("Migration resource not found on classpath: " + resource);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        } catch (IOException e) {
+            throw new SQLException("Cannot read migration resource " + resource + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Money amounts are carried as long cents (1234 = 12.34€) so that sums and comparisons are
+ * exact and allocate nothing. BigDecimal only appears at the edges: the DECIMAL(10,2) columns
+ * read and written through JDBC, the BigDecimal fields of the Carte entities, and user input.
+ */
+public final class Montants {
+
+    private Montants() {
+    }
+
+    public static long centimes(BigDecimal montant) {
+        return montant.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal enDecimal(long centimes) {
+        return BigDecimal.valueOf(centimes, 2);
+    }
+
+    // Amount typed by a user, with a dot or a comma ("12.5", "12,50")
+    public static long parser(String saisie) {
+        if (saisie == null || saisie.isBlank()) {
+            throw new IllegalArgumentException("Amount cannot be empty");
+        }
+        try {
+            return centimes(new BigDecimal(saisie.trim().replace(',', '.')));
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount: " + saisie, e);
+        }
+    }
+
+    // "12.34", without currency
+    public static String formater(long centimes) {
+        return enDecimal(centimes).toPlainString();
+    }
+
+    // JDBC boundary: a NULL column reads as 0
+    public static long lire(ResultSet rs, String colonne) throws SQLException {
+        BigDecimal montant = rs.getBigDecimal(colonne);
+        return montant == null ? 0 : centimes(montant);
+    }
+
+    public static void ecrire(PreparedStatement stmt, int index, long centimes) throws SQLException {
+        stmt.setBigDecimal(index, enDecimal(centimes));
+    }
+}
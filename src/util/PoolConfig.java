@@ -0,0 +1,39 @@
+package util;
+
+public record PoolConfig(String url,
+                         String user,
+                         String password,
+                         int minIdle,
+                         int maxSize,
+                         long acquireTimeoutMs,
+                         long idleTimeoutMs,
+                         long evictionIntervalMs,
+                         long validationIntervalMs,
+                         int validationTimeoutSeconds,
+                         int statementCacheSize) {
+
+    public PoolConfig {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool max size must be positive");
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Pool min idle must be between 0 and max size");
+        }
+    }
+
+    public static PoolConfig fromAppConfig() {
+        return new PoolConfig(
+                AppConfig.getString("db.url", "jdbc:postgresql://localhost:5432/banking_db"),
+                AppConfig.getString("db.user", "postgres"),
+                AppConfig.getString("db.password", ""),
+                AppConfig.getInt("db.pool.minIdle", 2),
+                AppConfig.getInt("db.pool.maxSize", 10),
+                AppConfig.getLong("db.pool.acquireTimeoutMs", 5000),
+                AppConfig.getLong("db.pool.idleTimeoutMs", 300000),
+                AppConfig.getLong("db.pool.evictionIntervalMs", 30000),
+                AppConfig.getLong("db.pool.validationIntervalMs", 5000),
+                AppConfig.getInt("db.pool.validationTimeoutSeconds", 2),
+                AppConfig.getInt("db.pool.statementCacheSize", 64)
+        );
+    }
+}
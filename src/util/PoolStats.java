@@ -0,0 +1,30 @@
+package util;
+
+public record PoolStats(int active,
+                        int idle,
+                        int total,
+                        long acquisitions,
+                        long timeouts,
+                        double averageWaitMs,
+                        double maxWaitMs,
+                        long created,
+                        long destroyed,
+                        long validationFailures,
+                        long statementCacheHits,
+                        long statementCacheMisses) {
+
+    public double statementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Pool[active=%d, idle=%d, total=%d, acquisitions=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms, created=%d, destroyed=%d, validationFailures=%d, "
+                        + "statementCache[hits=%d, misses=%d, hitRatio=%.1f%%]]",
+                active, idle, total, acquisitions, timeouts, averageWaitMs, maxWaitMs,
+                created, destroyed, validationFailures,
+                statementCacheHits, statementCacheMisses, statementCacheHitRatio() * 100);
+    }
+}
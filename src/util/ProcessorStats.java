@@ -0,0 +1,26 @@
+package util;
+
+public record ProcessorStats(long submitted,
+                             int inFlight,
+                             int maxInFlight,
+                             int permits,
+                             int waitingForPermit,
+                             long authorized,
+                             long refused,
+                             long failed,
+                             double averageLatencyMs,
+                             double maxLatencyMs) {
+
+    public long completed() {
+        return authorized + refused + failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Processor[submitted=%d, completed=%d, inFlight=%d, maxInFlight=%d, permits=%d, waiting=%d, "
+                        + "authorized=%d, refused=%d, failed=%d, avgLatency=%.2fms, maxLatency=%.2fms]",
+                submitted, completed(), inFlight, maxInFlight, permits, waitingForPermit,
+                authorized, refused, failed, averageLatencyMs, maxLatencyMs);
+    }
+}
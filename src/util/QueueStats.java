@@ -0,0 +1,26 @@
+package util;
+
+public record QueueStats(int depth,
+                         int capacity,
+                         long published,
+                         long written,
+                         long dropped,
+                         long backpressureWaits,
+                         long writeFailures,
+                         long batches,
+                         double averageDrainLatencyMs,
+                         double maxDrainLatencyMs) {
+
+    public double averageBatchSize() {
+        return batches == 0 ? 0.0 : (double) written / batches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Queue[depth=%d/%d, published=%d, written=%d, dropped=%d, backpressureWaits=%d, writeFailures=%d, "
+                        + "batches=%d, avgBatch=%.1f, avgLatency=%.2fms, maxLatency=%.2fms]",
+                depth, capacity, published, written, dropped, backpressureWaits, writeFailures,
+                batches, averageBatchSize(), averageDrainLatencyMs, maxDrainLatencyMs);
+    }
+}
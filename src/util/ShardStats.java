@@ -0,0 +1,28 @@
+package util;
+
+public record ShardStats(int shards,
+                         int queueCapacity,
+                         int queued,
+                         int maxQueueDepth,
+                         long submitted,
+                         long rejected,
+                         long authorized,
+                         long refused,
+                         long failed,
+                         double averageLatencyMs,
+                         double maxLatencyMs,
+                         long lockWaits) {
+
+    public long completed() {
+        return authorized + refused + failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Shards[shards=%d, queued=%d (max %d, capacity %d per shard), submitted=%d, rejected=%d, completed=%d, "
+                        + "authorized=%d, refused=%d, failed=%d, avgLatency=%.2fms, maxLatency=%.2fms, lockWaits=%d]",
+                shards, queued, maxQueueDepth, queueCapacity, submitted, rejected, completed(),
+                authorized, refused, failed, averageLatencyMs, maxLatencyMs, lockWaits);
+    }
+}
@@ -0,0 +1,146 @@
+package util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared statements for one physical connection.
+ * Callers get a proxy whose close() only clears the parameters, so the same
+ * PreparedStatement (and its server-side plan) is reused by the next caller
+ * preparing the same SQL on this connection.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final ConnectionPool pool;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, ConnectionPool pool) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.pool = pool;
+    }
+
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) {
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys + "|" + sql;
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse && !entry.statement.isClosed()) {
+            pool.recordStatementCacheHit();
+            entry.inUse = true;
+            return entry.lease();
+        }
+
+        pool.recordStatementCacheMiss();
+        PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            // Same SQL already checked out on this connection (nested use): do not cache the copy
+            return statement;
+        }
+
+        entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictIfNeeded();
+        return entry.lease();
+    }
+
+    synchronized void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.closeQuietly();
+        }
+        entries.clear();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            if (eldest.inUse) {
+                eldest.evicted = true;
+            } else {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    private synchronized void giveBack(Entry entry) throws SQLException {
+        entry.inUse = false;
+        if (entry.evicted) {
+            entry.closeQuietly();
+            return;
+        }
+        entry.statement.clearParameters();
+        entry.statement.clearBatch();
+    }
+
+    private final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement lease() {
+            boolean[] closed = {false};
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close" -> {
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    giveBack(this);
+                                }
+                                return null;
+                            }
+                            case "isClosed" -> {
+                                return closed[0] || statement.isClosed();
+                            }
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            default -> {
+                                if (closed[0]) {
+                                    throw new SQLException("Statement is closed");
+                                }
+                                return invoke(method, args);
+                            }
+                        }
+                    });
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // Statement is discarded anyway
+            }
+        }
+    }
+}